@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package uno.bench;
+
+import uno.engine.BotAccounting;
+import uno.engine.Game;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks that the engine doesn't allocate in its steady state, by reading the
+ * bytes allocated by the current thread around every bot move.
+ * <p>Bot games from 2 to 8 players are played one after the other. Creating a
+ * game allocates, so only {@link Game#goBot()}, and the
+ * {@link Game#executeMove} it makes, are measured. The first moves are left
+ * out while the JIT compiles the move path, as the flight recorder events are
+ * only optimised away once compiled. Bot accounting is turned off on JVMs
+ * where measuring allocation allocates itself.
+ * <p>Usage: {@code AllocationCheck [--moves <n>] [--warmup <n>]}
+ * <p>Exits with status 1 if any measured move allocated.
+ *
+ * @author Fábio Furtado
+ */
+public final class AllocationCheck {
+
+    private static final long DEFAULT_MOVES = 5_000_000;
+    private static final long DEFAULT_WARMUP = 1_000_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationCheck() {}
+
+    public static void main(String[] args) {
+        long moves = DEFAULT_MOVES;
+        long warmup = DEFAULT_WARMUP;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--moves"))
+                moves = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("--warmup"))
+                warmup = Long.parseLong(args[i + 1]);
+        }
+        if (!THREADS.isThreadAllocatedMemorySupported()) {
+            System.out.println("Allocation tracking is not supported by this JVM");
+            System.exit(2);
+        }
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        if (BotAccounting.getAllocatesToMeasure()) {
+            System.out.println("Bot accounting is disabled, measuring allocation allocates on this JVM");
+            BotAccounting.setEnabled(false);
+        }
+
+        long thread = Thread.currentThread().getId();
+        long overhead = overhead(thread);
+        long played = 0;
+        long measured = 0;
+        long allocated = 0;
+        long allocatingMoves = 0;
+        long games = 0;
+        int players = Game.MIN_NUMBER_OF_PLAYERS;
+        while (measured < moves) {
+            Game game = Game.Factory.createGame(players);
+            while (!game.isOver()) {
+                long before = THREADS.getThreadAllocatedBytes(thread);
+                game.goBot();
+                long bytes = THREADS.getThreadAllocatedBytes(thread) - before - overhead;
+                if (played++ >= warmup) {
+                    measured++;
+                    if (bytes > 0) {
+                        allocated += bytes;
+                        allocatingMoves++;
+                    }
+                }
+            }
+            games++;
+            players = players == Game.MAX_NUMBER_OF_PLAYERS ? Game.MIN_NUMBER_OF_PLAYERS : players + 1;
+        }
+
+        System.out.printf("%d moves measured over %d games, after %d warm-up moves%n",
+                measured, games, warmup);
+        System.out.printf("%d bytes allocated by %d moves, %.4f bytes per move%n",
+                allocated, allocatingMoves, (double) allocated / measured);
+        if (allocated > 0)
+            System.exit(1);
+    }
+
+    /**
+     * Returns the bytes reading the allocation counter allocates itself, which
+     * is more than 0 on JVMs that don't read it for the current thread
+     * directly.
+     */
+    private static long overhead(long thread) {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 10_000; i++) {
+            long before = THREADS.getThreadAllocatedBytes(thread);
+            overhead = Math.min(overhead, THREADS.getThreadAllocatedBytes(thread) - before);
+        }
+        return overhead;
+    }
+}
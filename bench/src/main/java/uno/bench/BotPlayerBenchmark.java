@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+import uno.engine.CardColour;
+import uno.engine.Game;
+import uno.engine.GameCommand;
+import uno.engine.objects.BotPlayer;
+import uno.engine.objects.Card;
+import uno.engine.objects.NumericCard;
+import uno.engine.objects.WildCard;
+import uno.engine.WildCardSymbol;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decisions of {@link BotPlayer}, when it plays a coloured card
+ * and when it plays a wild one and so has to choose a colour.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BotPlayerBenchmark {
+
+    private final Game game = Tables.restore(Tables.table());
+    private final BotPlayer colouredBot = new BotPlayer("coloured");
+    private final BotPlayer wildBot = new BotPlayer("wild");
+
+    @Setup
+    public void setUp() {
+        List<Card> hand = Tables.hand();
+        for (Card card : hand)
+            colouredBot.addToHand(card);
+
+        // Only the wild card is valid, after a few unplayable ones
+        for (int i = 0; i < 6; i++)
+            wildBot.addToHand(NumericCard.of(CardColour.values()[i % 3 + 1], i % 5));
+        wildBot.addToHand(WildCard.of(WildCardSymbol.DRAW_4));
+    }
+
+    @Benchmark
+    public GameCommand makeMoveColoured() {
+        return colouredBot.makeMove(game);
+    }
+
+    /**
+     * Includes choosing the colour for the wild card.
+     */
+    @Benchmark
+    public GameCommand makeMoveWild() {
+        return wildBot.makeMove(game);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares two JMH result files in JSON format, usually a stored baseline and
+ * the results of a new run, printing the change of each benchmark's score and
+ * of its normalized allocation rate when the GC profiler was on.
+ * <p>Usage: {@code CompareResults <baseline.json> <results.json> [threshold %]}
+ * <p>Exits with status 1 if any score got worse by more than the threshold,
+ * 10% by default.
+ *
+ * @author Fábio Furtado
+ */
+public final class CompareResults {
+
+    private static final String ALLOCATION = "·gc.alloc.rate.norm";
+
+    private CompareResults() {}
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <results.json> [threshold %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, Map<String, Object>> baseline = read(args[0]);
+        Map<String, Map<String, Object>> results = read(args[1]);
+
+        int regressions = 0;
+        System.out.printf("%-70s %14s %14s %9s %12s%n",
+                "Benchmark", "Baseline", "Current", "Change", "B/op");
+        for (Map.Entry<String, Map<String, Object>> entry : results.entrySet()) {
+            Map<String, Object> result = entry.getValue();
+            Map<String, Object> before = baseline.get(entry.getKey());
+            Map<String, Object> metric = map(result.get("primaryMetric"));
+            double score = number(metric.get("score"));
+            String unit = (String) metric.get("scoreUnit");
+            String allocation = allocation(result);
+            if (before == null) {
+                System.out.printf("%-70s %14s %14.3f %9s %12s  %s%n",
+                        entry.getKey(), "-", score, "new", allocation, unit);
+                continue;
+            }
+            double previous = number(map(before.get("primaryMetric")).get("score"));
+            double change = (score - previous) / previous * 100;
+
+            // Throughput should go up, every other mode measures time
+            boolean higherIsBetter = "thrpt".equals(result.get("mode"));
+            double worsening = higherIsBetter ? -change : change;
+            boolean regressed = worsening > threshold;
+            if (regressed)
+                regressions++;
+            String previousAllocation = allocation(before);
+            System.out.printf("%-70s %14.3f %14.3f %8.1f%% %12s  %s%s%n",
+                    entry.getKey(), previous, score, change,
+                    previousAllocation.equals(allocation) ? allocation
+                            : previousAllocation + "->" + allocation,
+                    unit, regressed ? "  REGRESSION" : "");
+        }
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) worse by more than " + threshold + "%");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a result file into a map from the benchmark's name and parameters
+     * to its result.
+     */
+    private static Map<String, Map<String, Object>> read(String file) throws IOException {
+        String text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+        Map<String, Map<String, Object>> results = new LinkedHashMap<>();
+        for (Object element : (List<?>) JsonReader.parse(text)) {
+            Map<String, Object> result = map(element);
+            StringBuilder key = new StringBuilder((String) result.get("benchmark"));
+            Object params = result.get("params");
+            if (params != null) {
+                for (Map.Entry<String, Object> param : map(params).entrySet())
+                    key.append(' ').append(param.getKey()).append('=').append(param.getValue());
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String allocation(Map<String, Object> result) {
+        Object secondary = result.get("secondaryMetrics");
+        if (secondary == null)
+            return "-";
+        Object metric = map(secondary).get(ALLOCATION);
+        if (metric == null)
+            return "-";
+        return String.format("%.0f", number(map(metric).get("score")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> map(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    private static double number(Object value) {
+        return value == null ? Double.NaN : (Double) value;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uno.engine.ConcurrentGame;
+import uno.engine.Game;
+import uno.engine.UnoGame;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how reads of a game being played scale with the number of reading
+ * threads, comparing {@link ConcurrentGame} with a game guarded by a lock.
+ * <p>Each group has a single thread playing bot moves while the others read.
+ * The default split is 3 readers and 1 writer; run with, for instance,
+ * {@code -tg 7,1} to use more cores.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class ConcurrentGameBenchmark {
+
+    private static final int NUMBER_OF_BOTS = 4;
+
+    private volatile ConcurrentGame concurrentGame;
+    private volatile UnoGame lockedGame;
+    private final Object lock = new Object();
+
+    @Setup
+    public void setUp() {
+        concurrentGame = new ConcurrentGame(Game.Factory.createGame(NUMBER_OF_BOTS));
+        lockedGame = Game.Factory.createGame(NUMBER_OF_BOTS);
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(3)
+    public void concurrentRead(Blackhole blackhole) {
+        read(concurrentGame, blackhole);
+    }
+
+    @Benchmark
+    @Group("concurrent")
+    @GroupThreads(1)
+    public void concurrentWrite(Blackhole blackhole) {
+        ConcurrentGame game = concurrentGame;
+        if (game.isOver())
+            concurrentGame = new ConcurrentGame(Game.Factory.createGame(NUMBER_OF_BOTS));
+        else blackhole.consume(game.goBot());
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public void lockedRead(Blackhole blackhole) {
+        synchronized (lock) {
+            read(lockedGame, blackhole);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public void lockedWrite(Blackhole blackhole) {
+        synchronized (lock) {
+            if (lockedGame.isOver())
+                lockedGame = Game.Factory.createGame(NUMBER_OF_BOTS);
+            else blackhole.consume(lockedGame.goBot());
+        }
+    }
+
+    /**
+     * What a view of the table needs.
+     */
+    private static void read(UnoGame game, Blackhole blackhole) {
+        blackhole.consume(game.getTableTop());
+        blackhole.consume(game.isCardValid(game.getDeckTop()));
+        blackhole.consume(game.getIndex(game.getPlayerInTurn().getId()));
+        blackhole.consume(game.isOver());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+import uno.engine.CardColour;
+import uno.engine.GameCommand;
+import uno.engine.SpecialCardSymbol;
+import uno.engine.WildCardSymbol;
+import uno.engine.objects.NumericCard;
+import uno.engine.objects.SpecialCard;
+import uno.engine.objects.WildCard;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the interning factories of commands and cards, which the engine
+ * calls on every move.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FactoryBenchmark {
+
+    private int index = 3;
+    private CardColour colour = CardColour.GREEN;
+    private int number = 7;
+    private SpecialCardSymbol specialSymbol = SpecialCardSymbol.REVERSE;
+    private WildCardSymbol wildSymbol = WildCardSymbol.DRAW_4;
+
+    @Benchmark
+    public GameCommand commandOfDraw() {
+        return GameCommand.of();
+    }
+
+    @Benchmark
+    public GameCommand commandOfIndex() {
+        return GameCommand.of(index);
+    }
+
+    @Benchmark
+    public GameCommand commandOfIndexAndColour() {
+        return GameCommand.of(index, colour);
+    }
+
+    @Benchmark
+    public NumericCard numericCardOf() {
+        return NumericCard.of(colour, number);
+    }
+
+    @Benchmark
+    public SpecialCard specialCardOf() {
+        return SpecialCard.of(colour, specialSymbol);
+    }
+
+    @Benchmark
+    public WildCard wildCardOf() {
+        return WildCard.of(wildSymbol);
+    }
+
+    @Benchmark
+    public WildCard wildCardOfWithColour() {
+        return WildCard.of(wildSymbol, colour);
+    }
+}
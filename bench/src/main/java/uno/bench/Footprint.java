@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jol.util.ObjectUtils;
+import org.openjdk.jol.vm.VM;
+import uno.engine.Game;
+import uno.engine.GameCommand;
+import uno.engine.GameSnapshot;
+import uno.engine.objects.NumericCard;
+import uno.engine.objects.Player;
+import uno.engine.objects.SpecialCard;
+import uno.engine.objects.WildCard;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Measures the memory retained by a single game, for 2 to 8 players, right
+ * after being dealt, halfway through and near the end of a long game.
+ * <p>The bytes are broken down by the deck and table stacks (arrays included),
+ * the players' hands, the rest of the players and the rest of the game. The
+ * interned cards and commands are shared by every game, so they're reported
+ * once, apart, and not charged to any game. Their number of entries should
+ * stay the same however many games are played.
+ * <p>Mid and late games are taken from the longest of a few bot games, and
+ * restored from a snapshot for measuring.
+ * <p>Usage: {@code Footprint [--budget <bytes per game>] [--games <n>]}
+ * <p>Exits with status 1 if any game retains more than the budget.
+ *
+ * @author Fábio Furtado
+ */
+public final class Footprint {
+
+    private static final long DEFAULT_BUDGET = 16 * 1024;
+    private static final int DEFAULT_GAMES = 20;
+    private static final Class<?>[] POOL_OWNERS = {
+            NumericCard.class, SpecialCard.class, WildCard.class, GameCommand.class
+    };
+
+    private Footprint() {}
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        long budget = DEFAULT_BUDGET;
+        int games = DEFAULT_GAMES;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--budget"))
+                budget = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("--games"))
+                games = Integer.parseInt(args[i + 1]);
+        }
+
+        List<Object> pools = pools();
+        System.out.printf("%-7s %-6s %8s %8s %8s %8s %8s %8s%n",
+                "Players", "Stage", "Deck", "Table", "Hands", "Players", "Game", "Total");
+
+        int overBudget = 0;
+        for (int players = Game.MIN_NUMBER_OF_PLAYERS; players <= Game.MAX_NUMBER_OF_PLAYERS; players++) {
+            List<GameSnapshot> longest = longestGame(players, games);
+            Game[] stages = {
+                    Game.Factory.createGame(players),
+                    Game.Factory.restore(longest.get(longest.size() / 2)),
+                    Game.Factory.restore(longest.get(longest.size() - 1))
+            };
+            String[] names = {"dealt", "mid", "late"};
+            for (int i = 0; i < stages.length; i++) {
+                long[] bytes = measure(stages[i], pools);
+                long total = 0;
+                for (long value : bytes)
+                    total += value;
+                boolean over = total > budget;
+                if (over)
+                    overBudget++;
+                System.out.printf("%-7d %-6s %8d %8d %8d %8d %8d %8d%s%n", players, names[i],
+                        bytes[0], bytes[1], bytes[2], bytes[3], bytes[4], total,
+                        over ? "  OVER BUDGET" : "");
+            }
+        }
+        int entries = 0;
+        for (Object pool : pools)
+            entries += ((Object[]) pool).length;
+        System.out.printf("%nInterned cards and commands, shared by all games: %d bytes in %d entries%n",
+                new Walker().measure(pools.toArray()), entries);
+        if (overBudget > 0) {
+            System.out.println(overBudget + " game(s) over the budget of " + budget + " bytes");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns the bytes retained by the deck, table, hands, players and the
+     * rest of the game, in that order.
+     */
+    private static long[] measure(Game game, List<Object> pools)
+            throws ReflectiveOperationException {
+        Walker walker = new Walker();
+        walker.exclude(pools.toArray());
+        Player[] players = (Player[]) field(game, "players");
+        Object[] hands = new Object[players.length];
+        for (int i = 0; i < players.length; i++)
+            hands[i] = players[i].getHand();
+        return new long[] {
+                walker.measure(field(game, "deck")),
+                walker.measure(field(game, "table")),
+                walker.measure(hands),
+                walker.measure((Object[]) players),
+                walker.measure(game)
+        };
+    }
+
+    /**
+     * Plays bot games, returning the states of the longest one before each of
+     * its moves.
+     */
+    private static List<GameSnapshot> longestGame(int players, int games) {
+        List<GameSnapshot> longest = Collections.emptyList();
+        for (int i = 0; i < games; i++) {
+            Game game = Game.Factory.createGame(players);
+            List<GameSnapshot> states = new ArrayList<>();
+            while (!game.isOver()) {
+                states.add(game.snapshot());
+                game.goBot();
+            }
+            if (states.size() > longest.size())
+                longest = states;
+        }
+        return longest;
+    }
+
+    private static List<Object> pools() throws ReflectiveOperationException {
+        List<Object> pools = new ArrayList<>();
+        for (Class<?> owner : POOL_OWNERS) {
+            Field pool = owner.getDeclaredField("pool");
+            pool.setAccessible(true);
+            pools.add(pool.get(null));
+        }
+        return pools;
+    }
+
+    private static Object field(Object object, String name) throws ReflectiveOperationException {
+        return ObjectUtils.value(object, object.getClass().getDeclaredField(name));
+    }
+
+    /**
+     * Walks object graphs adding up the size of the objects not seen before,
+     * so objects reachable from several roots are only counted once. Enum
+     * constants are never counted.
+     */
+    private static final class Walker {
+
+        private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        private final Map<Class<?>, List<Field>> fields = new HashMap<>();
+
+        /**
+         * Marks everything reachable from the roots as seen, without counting
+         * it.
+         */
+        void exclude(Object... roots) {
+            measure(roots);
+        }
+
+        /**
+         * Returns the size of the objects reachable from the roots which
+         * weren't seen before.
+         */
+        long measure(Object... roots) {
+            long size = 0;
+            Deque<Object> pending = new ArrayDeque<>();
+            for (Object root : roots) {
+                if (root != null)
+                    pending.push(root);
+            }
+            while (!pending.isEmpty()) {
+                Object object = pending.pop();
+                if (object instanceof Enum || object instanceof Class || !visited.add(object))
+                    continue;
+                size += VM.current().sizeOf(object);
+                Class<?> type = object.getClass();
+                if (type.isArray()) {
+                    if (!type.getComponentType().isPrimitive()) {
+                        for (Object element : (Object[]) object) {
+                            if (element != null)
+                                pending.push(element);
+                        }
+                    }
+                    continue;
+                }
+                for (Field field : referenceFields(type)) {
+                    Object value = ObjectUtils.value(object, field);
+                    if (value != null)
+                        pending.push(value);
+                }
+            }
+            return size;
+        }
+
+        private List<Field> referenceFields(Class<?> type) {
+            return fields.computeIfAbsent(type, key -> {
+                List<Field> references = new ArrayList<>();
+                for (Class<?> c = key; c != null; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive())
+                            references.add(field);
+                    }
+                }
+                return references;
+            });
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+import uno.engine.CardColour;
+import uno.engine.Game;
+import uno.engine.GameCommand;
+import uno.engine.GameSnapshot;
+import uno.engine.UnoGame;
+import uno.engine.engineExceptions.EngineException;
+import uno.engine.objects.Card;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the paths of {@link Game#executeMove(GameCommand)}, card
+ * validation and cloning.
+ * <p>Moves change the game, so each move is made on a game freshly restored
+ * from a fixed state. A single move takes too little time to be timed on its
+ * own, so each invocation makes the same move on a batch of {@value #BATCH}
+ * games, restored before the invocation, and the score is per move. The
+ * allocation reported by the GC profiler for moves includes those
+ * restorations; compare it with {@link #restoreOnly(FreshGames)}.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    /**
+     * Number of moves made by each invocation of the move benchmarks.
+     */
+    static final int BATCH = 256;
+
+    private final List<Card> hand = Tables.hand();
+    private final GameCommand draw = GameCommand.of();
+    private final GameCommand numeric = GameCommand.of(Tables.NUMERIC);
+    private final GameCommand special = GameCommand.of(Tables.SPECIAL);
+    private final GameCommand wild = GameCommand.of(Tables.WILD, CardColour.BLUE);
+    private Game game;
+
+    /**
+     * A batch of games with cards on the table, restored before every
+     * invocation.
+     */
+    @State(Scope.Thread)
+    public static class FreshGames {
+
+        private final GameSnapshot table = Tables.table();
+        final Game[] games = new Game[BATCH];
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            for (int i = 0; i < BATCH; i++)
+                games[i] = Tables.restore(table);
+        }
+    }
+
+    /**
+     * A batch of games whose deck runs out on the next draw, restored before
+     * every invocation.
+     */
+    @State(Scope.Thread)
+    public static class ReshufflingGames {
+
+        private final GameSnapshot exhaustedDeck = Tables.exhaustedDeck();
+        final Game[] games = new Game[BATCH];
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            for (int i = 0; i < BATCH; i++)
+                games[i] = Tables.restore(exhaustedDeck);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        game = Tables.restore(Tables.table());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public Game[] restoreOnly(FreshGames fresh) {
+        return fresh.games;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int executeMoveDraw(FreshGames fresh) throws EngineException {
+        return executeMoves(fresh.games, draw);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int executeMoveNumeric(FreshGames fresh) throws EngineException {
+        return executeMoves(fresh.games, numeric);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int executeMoveSpecial(FreshGames fresh) throws EngineException {
+        return executeMoves(fresh.games, special);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int executeMoveWild(FreshGames fresh) throws EngineException {
+        return executeMoves(fresh.games, wild);
+    }
+
+    /**
+     * A draw which first reshuffles 80 cards from the table into the deck
+     * (makeSureDeckDoesNotGetEmpty). Compare with
+     * {@link #executeMoveDraw(FreshGames)}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int executeMoveReshuffle(ReshufflingGames fresh) throws EngineException {
+        return executeMoves(fresh.games, draw);
+    }
+
+    @Benchmark
+    public boolean isCardValidNumeric() {
+        return game.isCardValid(hand.get(Tables.NUMERIC));
+    }
+
+    @Benchmark
+    public boolean isCardValidSpecial() {
+        return game.isCardValid(hand.get(Tables.SPECIAL));
+    }
+
+    @Benchmark
+    public boolean isCardValidWild() {
+        return game.isCardValid(hand.get(Tables.WILD));
+    }
+
+    @Benchmark
+    public boolean isCardValidUnplayable() {
+        return game.isCardValid(hand.get(Tables.UNPLAYABLE));
+    }
+
+    @Benchmark
+    public UnoGame cloneGame() {
+        return game.clone();
+    }
+
+    /**
+     * Makes the given move in every game, returning the sum of the results so
+     * none of them is optimised away.
+     */
+    private static int executeMoves(Game[] games, GameCommand command) throws EngineException {
+        int results = 0;
+        for (Game game : games)
+            results += game.executeMove(command);
+        return results;
+    }
+}
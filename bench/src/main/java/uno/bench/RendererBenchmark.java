@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+import uno.cli.InteractiveRenderer;
+import uno.cli.MachineRenderer;
+import uno.cli.QuietRenderer;
+import uno.cli.Renderer;
+import uno.engine.Game;
+import uno.engine.GameCommand;
+import uno.engine.objects.Player;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing out a whole bot game the way the CLI does, to the null
+ * device so every flush is a real write. {@code println} is how the CLI wrote
+ * before renderers: a {@code print} per piece through a stream like
+ * {@code System.out}, flushing on every line. The renderers write each turn
+ * once. Every invocation plays the same seeded game, so only the output
+ * differs.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RendererBenchmark {
+
+    private static final long SEED = 42;
+    private static final int BOTS = 4;
+
+    @Param({"println", "interactive", "quiet", "machine"})
+    public String output;
+
+    private OutputStream device;
+    private PrintStream legacy;
+    private Renderer renderer;
+
+    @Setup
+    public void setUp() throws IOException {
+        device = new FileOutputStream(System.getProperty("os.name").startsWith("Windows")
+                ? "NUL" : "/dev/null");
+        switch (output) {
+            case "println":
+                // Like System.out: a small buffer, flushed at every line
+                legacy = new PrintStream(new BufferedOutputStream(device, 128), true);
+                break;
+            case "interactive":
+                renderer = new InteractiveRenderer(new OutputStreamWriter(device));
+                break;
+            case "quiet":
+                renderer = new QuietRenderer(new OutputStreamWriter(device));
+                break;
+            default:
+                renderer = new MachineRenderer(new OutputStreamWriter(device));
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        device.close();
+    }
+
+    @Benchmark
+    public Game botGame() {
+        Game game = Game.Factory.createSeededGame(SEED, BOTS);
+        if (legacy != null)
+            playPrinting(game);
+        else playRendering(game);
+        return game;
+    }
+
+    private void playRendering(Game game) {
+        while (!game.isOver()) {
+            renderer.turn(game.getPlayerInTurn().getId(), game.getTableTop());
+            GameCommand move = game.goBot();
+            Player previous = game.getPreviousPlayer();
+            renderer.move(previous.getId(), move, game.getTableTop());
+            if (previous.getHand().size() == 1)
+                renderer.lastCard(previous.getId());
+            if (game.isOver())
+                renderer.gameOver(game.getWinner().getId());
+            renderer.flush();
+        }
+    }
+
+    private void playPrinting(Game game) {
+        while (!game.isOver()) {
+            legacy.print("Table Top: ");
+            legacy.print(game.getTableTop().toString());
+            legacy.print("  |  ");
+            legacy.println("It's " + game.getPlayerInTurn().getId() + "'s turn");
+            legacy.println();
+            GameCommand move = game.goBot();
+            Player previous = game.getPreviousPlayer();
+            if (move.getOption() == 0)
+                legacy.println(previous.getId() + " has drawn a card");
+            else {
+                legacy.print(previous.getId() + " has played a ");
+                legacy.print(game.getTableTop().toString());
+                legacy.println();
+            }
+            legacy.println();
+            if (previous.getHand().size() == 1)
+                legacy.println("CAREFUL: " + previous.getId() + " has only one card left\n");
+            if (game.isOver())
+                legacy.println("\nGAME OVER!!!\n" + game.getWinner().getId() + " Won!");
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import uno.engine.Game;
+
+import javax.management.JMException;
+import javax.management.NotificationEmitter;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plays bot games continuously for a long time, checking that the process
+ * could keep doing so for weeks: no memory kept growing and the throughput
+ * didn't decay.
+ * <p>Games with 2 to 8 players are played on every core. At each interval the
+ * heap is collected and inspected through a class histogram, and a sample is
+ * taken of the games and moves per second, the heap used after the
+ * collection, the live instances of the project's classes ({@code uno.*}, bar
+ * the harness's own) and the count and longest of the collector's own pauses
+ * (the ones forced by the sampling are left out).
+ * <p>After the warm-up samples, a series is flagged as growing when it went up
+ * in at least {@value #GROWING_STEPS}% of the samples and ended more than
+ * {@value #GROWTH_THRESHOLD}% above where it started, and the throughput as
+ * decaying when the games per second of the last third of the run are more
+ * than {@value #DECAY_THRESHOLD}% below those of the first third. The classes
+ * whose instances grew the most are listed to help find a leak.
+ * <p>Usage: {@code Soak [--minutes <n>] [--interval <seconds>]
+ * [--threads <n>] [--warmup <samples>]}
+ * <p>Exits with status 1 if anything was flagged.
+ *
+ * @author Fábio Furtado
+ */
+public final class Soak {
+
+    private static final long DEFAULT_MINUTES = 60;
+    private static final long DEFAULT_INTERVAL_SECONDS = 60;
+    private static final int DEFAULT_WARMUP = 2;
+    private static final int GROWING_STEPS = 75;
+    private static final int GROWTH_THRESHOLD = 5;
+    private static final int DECAY_THRESHOLD = 10;
+    private static final int CLASSES_LISTED = 5;
+    private static final String PROJECT_PACKAGE = "uno.";
+
+    private static final LongAdder games = new LongAdder();
+    private static final LongAdder moves = new LongAdder();
+    private static final LongAdder pauses = new LongAdder();
+    private static final Object pauseLock = new Object();
+    private static long longestPause;
+    private static volatile boolean running = true;
+
+    private Soak() {}
+
+    /**
+     * State of the process at the end of an interval.
+     */
+    private static final class Sample {
+        long elapsedSeconds;
+        double gamesPerSecond;
+        double movesPerSecond;
+        long heapAfterGc;
+        long projectInstances;
+        long pauses;
+        long longestPause;
+        Map<String, Long> instances;
+    }
+
+    public static void main(String[] args) throws InterruptedException, JMException {
+        long minutes = DEFAULT_MINUTES;
+        long interval = DEFAULT_INTERVAL_SECONDS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int warmup = DEFAULT_WARMUP;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--minutes"))
+                minutes = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("--interval"))
+                interval = Long.parseLong(args[i + 1]);
+            else if (args[i].equals("--threads"))
+                threads = Integer.parseInt(args[i + 1]);
+            else if (args[i].equals("--warmup"))
+                warmup = Integer.parseInt(args[i + 1]);
+        }
+
+        listenToPauses();
+        for (int i = 0; i < threads; i++) {
+            Thread player = new Thread(Soak::play, "uno-soak-" + i);
+            player.setDaemon(true);
+            player.start();
+        }
+
+        System.out.printf("Playing on %d threads for %d minutes, sampling every %d s%n%n",
+                threads, minutes, interval);
+        System.out.printf("%8s %10s %12s %12s %12s %8s %10s%n", "Elapsed", "Games/s",
+                "Moves/s", "Heap after", "uno objects", "Pauses", "Longest");
+        List<Sample> samples = new ArrayList<>();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.MINUTES.toNanos(minutes);
+        long lastGames = 0;
+        long lastMoves = 0;
+        long lastNanos = start;
+        while (System.nanoTime() < end) {
+            TimeUnit.NANOSECONDS.sleep(Math.min(TimeUnit.SECONDS.toNanos(interval),
+                    end - System.nanoTime()));
+            long now = System.nanoTime();
+            long totalGames = games.sum();
+            long totalMoves = moves.sum();
+            Sample sample = new Sample();
+            sample.elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - start);
+            sample.gamesPerSecond = (totalGames - lastGames) * 1e9 / (now - lastNanos);
+            sample.movesPerSecond = (totalMoves - lastMoves) * 1e9 / (now - lastNanos);
+            synchronized (pauseLock) {
+                sample.pauses = pauses.sumThenReset();
+                sample.longestPause = longestPause;
+                longestPause = 0;
+            }
+            sample.instances = projectInstances();
+            sample.heapAfterGc = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            for (long count : sample.instances.values())
+                sample.projectInstances += count;
+            samples.add(sample);
+            System.out.printf("%7ds %10.1f %12.1f %10d K %12d %8d %8d ms%n",
+                    sample.elapsedSeconds, sample.gamesPerSecond, sample.movesPerSecond,
+                    sample.heapAfterGc / 1024, sample.projectInstances, sample.pauses,
+                    sample.longestPause);
+            lastGames = totalGames;
+            lastMoves = totalMoves;
+            lastNanos = now;
+        }
+        running = false;
+
+        List<Sample> measured = samples.subList(Math.min(warmup, samples.size()), samples.size());
+        System.out.println();
+        int flags = 0;
+        if (growing(measured, s -> s.heapAfterGc)) {
+            System.out.println("FLAG heap after GC kept growing");
+            flags++;
+        }
+        if (growing(measured, s -> s.projectInstances)) {
+            System.out.println("FLAG live uno objects kept growing");
+            flags++;
+        }
+        if (decaying(measured)) {
+            System.out.println("FLAG throughput decayed");
+            flags++;
+        }
+        if (!measured.isEmpty())
+            printGrowth(measured.get(0), measured.get(measured.size() - 1));
+        if (flags > 0)
+            System.exit(1);
+        System.out.println("No growth nor decay over " + measured.size() + " samples");
+    }
+
+    private static void play() {
+        int players = Game.MIN_NUMBER_OF_PLAYERS;
+        while (running) {
+            Game game = Game.Factory.createGame(players);
+            long made = 0;
+            while (!game.isOver()) {
+                game.goBot();
+                made++;
+            }
+            games.increment();
+            moves.add(made);
+            players = players == Game.MAX_NUMBER_OF_PLAYERS ? Game.MIN_NUMBER_OF_PLAYERS : players + 1;
+        }
+    }
+
+    /**
+     * Counts the collector's pauses and keeps the longest, leaving out the
+     * collections forced by inspecting the heap and concurrent cycles.
+     */
+    private static void listenToPauses() {
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = collector.getName();
+            if (!(collector instanceof NotificationEmitter)
+                    || name.contains("Concurrent") || name.contains("Cycles"))
+                continue;
+            ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(
+                        GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                    return;
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+                        .from((CompositeData) notification.getUserData());
+                String cause = info.getGcCause();
+                if (cause.equals("System.gc()") || cause.startsWith("Heap Inspection"))
+                    return;
+                synchronized (pauseLock) {
+                    pauses.increment();
+                    longestPause = Math.max(longestPause, info.getGcInfo().getDuration());
+                }
+            }, null, null);
+        }
+    }
+
+    /**
+     * Returns the live instances of each of the project's classes, taken from
+     * a class histogram, which collects the whole heap first.
+     */
+    private static Map<String, Long> projectInstances() throws JMException {
+        String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(
+                new ObjectName("com.sun.management:type=DiagnosticCommand"),
+                "gcClassHistogram", new Object[] {new String[0]},
+                new String[] {String[].class.getName()});
+        Map<String, Long> instances = new HashMap<>();
+        for (String line : histogram.split("\n")) {
+            // "   1:   <instances>   <bytes>  <class> (<module>)"
+            String[] columns = line.trim().split("\\s+");
+            if (columns.length >= 4 && columns[0].endsWith(":")
+                    && columns[3].startsWith(PROJECT_PACKAGE)
+                    && !columns[3].startsWith(Soak.class.getPackage().getName()))
+                instances.merge(columns[3], Long.parseLong(columns[1]), Long::sum);
+        }
+        return instances;
+    }
+
+    private interface Series {
+        long of(Sample sample);
+    }
+
+    private static boolean growing(List<Sample> samples, Series series) {
+        if (samples.size() < 3)
+            return false;
+        int up = 0;
+        for (int i = 1; i < samples.size(); i++) {
+            if (series.of(samples.get(i)) > series.of(samples.get(i - 1)))
+                up++;
+        }
+        long first = series.of(samples.get(0));
+        long last = series.of(samples.get(samples.size() - 1));
+        return up * 100 >= GROWING_STEPS * (samples.size() - 1)
+                && last * 100 > first * (100 + GROWTH_THRESHOLD);
+    }
+
+    private static boolean decaying(List<Sample> samples) {
+        int third = samples.size() / 3;
+        if (third == 0)
+            return false;
+        double first = 0;
+        double last = 0;
+        for (int i = 0; i < third; i++) {
+            first += samples.get(i).gamesPerSecond;
+            last += samples.get(samples.size() - 1 - i).gamesPerSecond;
+        }
+        return last * 100 < first * (100 - DECAY_THRESHOLD);
+    }
+
+    private static void printGrowth(Sample first, Sample last) {
+        List<Map.Entry<String, Long>> growth = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : last.instances.entrySet()) {
+            long grown = entry.getValue() - first.instances.getOrDefault(entry.getKey(), 0L);
+            if (grown > 0)
+                growth.add(new AbstractMap.SimpleEntry<>(entry.getKey(), grown));
+        }
+        if (growth.isEmpty())
+            return;
+        growth.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        System.out.println("Classes with the most new instances since the first sample:");
+        for (Map.Entry<String, Long> entry : growth.subList(0, Math.min(CLASSES_LISTED, growth.size())))
+            System.out.printf("  %-60s +%d%n", entry.getKey(), entry.getValue());
+    }
+}
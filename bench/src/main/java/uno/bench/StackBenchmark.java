@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import uno.util.Stack;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Stack}, which holds the deck and the table.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StackBenchmark {
+
+    /**
+     * Size of a full deck.
+     */
+    @Param("108")
+    private int size;
+
+    private final Integer element = 42;
+    private Stack<Integer> stack;
+
+    @Setup
+    public void setUp() {
+        stack = new Stack<>();
+        for (int i = 0; i < size; i++)
+            stack.push(i);
+    }
+
+    /**
+     * A push followed by a pop, leaving the stack as it was.
+     */
+    @Benchmark
+    public Integer pushPop() {
+        stack.push(element);
+        return stack.pop();
+    }
+
+    @Benchmark
+    public Integer peek() {
+        return stack.peek();
+    }
+
+    @Benchmark
+    public Stack<Integer> cloneStack() {
+        return stack.clone();
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        for (Integer value : stack)
+            blackhole.consume(value);
+    }
+
+    @Benchmark
+    public Object[] toArray() {
+        return stack.toArray();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time a new CLI process takes to show its first prompt, or its
+ * first output in batch mode, from the moment it's launched. Each invocation
+ * is a new JVM, with this one's class path and working directory. In
+ * {@code client} mode it's a {@code DaemonClient} running a batch session on a
+ * daemon, which the first invocation starts and which is stopped at the end.
+ * <p>{@code -p jvmArgs="..."} adds options to the launched JVMs, to compare,
+ * say, with and without a class data sharing archive.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 30)
+@Fork(1)
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+    private static final byte[] PROMPT =
+            "How many players will your game have?: ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BATCH_OUTPUT = "game\t".getBytes(StandardCharsets.UTF_8);
+    private static final String MAIN = "uno.cli.MainKt";
+    private static final String CLIENT = "uno.cli.DaemonClient";
+
+    @Param({"interactive", "batch", "client"})
+    public String mode;
+
+    @Param({""})
+    public String jvmArgs;
+
+    private ProcessBuilder builder;
+    private byte[] expected;
+    private Process process;
+
+    @Setup
+    public void setUp() {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!jvmArgs.isEmpty())
+            command.addAll(Arrays.asList(jvmArgs.trim().split("\\s+")));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mode.equals("client") ? CLIENT : MAIN);
+        if (mode.equals("interactive")) expected = PROMPT;
+        else {
+            command.add("--batch");
+            expected = BATCH_OUTPUT;
+        }
+        builder = new ProcessBuilder(command).redirectErrorStream(true);
+        // The interactive CLI takes the user's name from it on unix
+        builder.environment().putIfAbsent("USER", "bench");
+    }
+
+    @Benchmark
+    public int firstPrompt() throws IOException {
+        process = builder.start();
+        InputStream output = process.getInputStream();
+        int matched = 0;
+        while (matched < expected.length) {
+            int read = output.read();
+            if (read == -1)
+                throw new IllegalStateException("The CLI exited before its first prompt");
+            if (read == expected[matched]) matched++;
+            else matched = read == expected[0] ? 1 : 0;
+        }
+        return matched;
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        process.destroyForcibly().waitFor();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopDaemon() throws IOException, InterruptedException {
+        if (!mode.equals("client")) return;
+        List<String> command = new ArrayList<>(builder.command());
+        int client = command.indexOf(CLIENT);
+        command = command.subList(0, client + 1);
+        command.add("--stop");
+        new ProcessBuilder(command).inheritIO().start().waitFor();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.bench;
+
+import uno.engine.CardColour;
+import uno.engine.Game;
+import uno.engine.GameSnapshot;
+import uno.engine.SpecialCardSymbol;
+import uno.engine.WildCardSymbol;
+import uno.engine.objects.Card;
+import uno.engine.objects.NumericCard;
+import uno.engine.objects.SpecialCard;
+import uno.engine.objects.WildCard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Builds games in fixed states, so each benchmark always measures the same
+ * path of the engine.
+ *
+ * @author Fábio Furtado
+ */
+final class Tables {
+
+    static final Card TABLE_TOP = NumericCard.of(CardColour.RED, 5);
+    static final int NUMERIC = 0;
+    static final int SPECIAL = 1;
+    static final int WILD = 2;
+    static final int UNPLAYABLE = 3;
+
+    private static final int NUMBER_OF_BOTS = 3;
+
+    private Tables() {}
+
+    /**
+     * Returns the hand of the human player of {@link #table()}: a valid
+     * numeric, special and wild card, in that order, followed by an invalid
+     * numeric card and some filler.
+     */
+    static List<Card> hand() {
+        List<Card> hand = new ArrayList<>();
+        hand.add(NumericCard.of(CardColour.RED, 3));
+        hand.add(SpecialCard.of(CardColour.RED, SpecialCardSymbol.SKIP));
+        hand.add(WildCard.of(WildCardSymbol.CHANGE_COLOUR));
+        hand.add(NumericCard.of(CardColour.BLUE, 7));
+        for (int i = 0; i < 4; i++)
+            hand.add(NumericCard.of(CardColour.GREEN, i));
+        return hand;
+    }
+
+    /**
+     * Returns a game with a human player in turn, holding {@link #hand()},
+     * and {@link #TABLE_TOP} on the table.
+     */
+    static GameSnapshot table() {
+        return table(60, 0);
+    }
+
+    /**
+     * Returns a game like {@link #table()} but with only 3 cards in the deck
+     * and 80 on the table, so the next move reshuffles the table into the deck.
+     */
+    static GameSnapshot exhaustedDeck() {
+        return table(3, 80);
+    }
+
+    static Game restore(GameSnapshot snapshot) {
+        return Game.Factory.restore(snapshot);
+    }
+
+    private static GameSnapshot table(int deckSize, int tableSize) {
+        List<GameSnapshot.PlayerSnapshot> players = new ArrayList<>();
+        players.add(new GameSnapshot.PlayerSnapshot("player", false, hand()));
+        for (int i = 1; i <= NUMBER_OF_BOTS; i++)
+            players.add(new GameSnapshot.PlayerSnapshot("Bot" + i, true, filler(7, i)));
+        List<Card> table = filler(tableSize, 7);
+        table.add(TABLE_TOP);
+        return new GameSnapshot(players, filler(deckSize, 11), table, 0, 0, 1,
+                CardColour.RED, 42);
+    }
+
+    private static List<Card> filler(int size, int seed) {
+        List<Card> cards = new ArrayList<>(size);
+        CardColour[] colours = CardColour.values();
+        for (int i = 0; i < size; i++)
+            cards.add(NumericCard.of(colours[(i + seed) % colours.length], (i * seed) % 10));
+        Collections.reverse(cards);
+        return cards;
+    }
+}
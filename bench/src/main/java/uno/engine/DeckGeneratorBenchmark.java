@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine;
+
+import org.openjdk.jmh.annotations.*;
+import uno.engine.objects.Card;
+import uno.util.Stack;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the creation of a shuffled deck. Lives in the engine's package
+ * because {@link DeckGenerator} is package-private.
+ *
+ * @author Fábio Furtado
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DeckGeneratorBenchmark {
+
+    @Benchmark
+    public Stack<Card> next() {
+        return DeckGenerator.next();
+    }
+}
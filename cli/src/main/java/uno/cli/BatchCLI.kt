@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.Game
+import uno.engine.GameCommand
+import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
+import uno.engine.engineExceptions.MissingColourForWildCardException
+import uno.engine.objects.Bot
+import java.io.BufferedReader
+
+/**
+ * A non-interactive counterpart of [CLI] which plays a game from a script of
+ * the same commands a user would type, without prompts nor bot delays, for
+ * replaying recorded sessions at full speed.
+ *
+ * The human player sits with `numberOfPlayers - 1` bots in a game seeded with
+ * `seed`, so a script always plays out the same. Bots move as soon as it's
+ * their turn. Each command line is then run for the human: blank lines and
+ * lines starting with `#` are skipped, a missing card index or wild colour is
+ * an error instead of a question, and `restart` deals a new game from the
+ * next seed.
+ *
+ * Everything is reported through `renderer`, flushed once per command, by
+ * default a [MachineRenderer].
+ *
+ * @author Fábio Furtado
+ */
+internal class BatchCLI(
+    private val numberOfPlayers: Int,
+    private var seed: Long,
+    private val humanPlayerName: String,
+    private val input: BufferedReader,
+    private val renderer: Renderer
+) {
+
+    private var game = newGame()
+    private var games = 1
+    private var errors = 0
+    private var lineNumber = 0
+
+    /**
+     * Runs the script to its end or to an `exit` command.
+     *
+     * @return number of commands which failed
+     */
+    fun run(): Int {
+        playBots()
+        renderer.flush()
+        while (true) {
+            val line = input.readLine() ?: break
+            lineNumber++
+            val cliCommand = line.trim().split(" ").filter { it.isNotEmpty() }.toTypedArray()
+            if (cliCommand.isEmpty() || cliCommand[0].startsWith("#")) continue
+            renderer.command(lineNumber, line.trim())
+            val keepGoing = runCommand(cliCommand)
+            renderer.flush()
+            if (!keepGoing) break
+        }
+        renderer.finished(games, errors)
+        renderer.flush()
+        return errors
+    }
+
+    private fun newGame(): Game {
+        val game = Game.createSeededGame(seed, numberOfPlayers - 1, humanPlayerName)
+        renderer.gameStarted(seed, numberOfPlayers, humanPlayerName, game.tableTop)
+        return game
+    }
+
+    /**
+     * Runs one command, returning false if the script should stop.
+     */
+    private fun runCommand(cliCommand: Array<String>): Boolean {
+        val name = cliCommand[0]
+        when {
+            CommandValuesKeeper.isEngineConvertible(name) ->
+                if (game.isOver) error("The game is over")
+                else drawOrPlayACard(cliCommand)
+            !CommandValuesKeeper.isCliExclusive(name) ->
+                error(String.format(CLItoEngineCommandConverter.unknownCommandErrorMessage, name))
+            cliCommand.size > 1 ->
+                error("No arguments expected for the <$name> command")
+            name == CommandValuesKeeper.getValue(Command.EXIT) -> return false
+            name == CommandValuesKeeper.getValue(Command.RESTART) -> {
+                seed++
+                games++
+                game = newGame()
+                playBots()
+            }
+            name == CommandValuesKeeper.getValue(Command.PRINT_HAND) -> reportHand()
+            name == CommandValuesKeeper.getValue(Command.PRINT_RIVALS_HAND_LENGTH) -> reportHands()
+            // help has nothing to tell a script, and analyze couldn't be
+            // replayed the same
+        }
+        return true
+    }
+
+    private fun drawOrPlayACard(cliCommand: Array<String>) {
+        try {
+            val move = CLItoEngineCommandConverter.convert(cliCommand)
+            if (game.executeMove(move) == 0) {
+                reportMove(move)
+                playBots()
+            } else renderer.invalidMove(cliCommand.joinToString(" "))
+        } catch (e: CommandFormatException) {
+            error(e.message ?: "Invalid command")
+        } catch (e: CardIndexOutOfHandBoundsException) {
+            error("Invalid card index")
+        } catch (e: MissingColourForWildCardException) {
+            error("Missing colour for the wild card")
+        }
+    }
+
+    /**
+     * Lets the bots play until it's the human's turn or the game is over.
+     */
+    private fun playBots() {
+        while (!game.isOver && game.playerInTurn is Bot)
+            reportMove(game.goBot())
+        if (game.isOver) renderer.gameOver(game.winner!!.id)
+    }
+
+    private fun reportMove(move: GameCommand) {
+        renderer.move(game.previousPlayer.id, move, game.tableTop)
+    }
+
+    private fun reportHand() {
+        renderer.hand(humanPlayerName, game.getPlayer(humanPlayerName).orElseThrow().hand)
+    }
+
+    private fun reportHands() {
+        renderer.handSizes(game.getPlayers())
+    }
+
+    private fun error(message: String) {
+        errors++
+        renderer.error(message)
+    }
+}
@@ -21,6 +21,15 @@ import uno.data.ConfigReader
 import uno.data.SystemInfo
 import uno.data.SystemInfoUnix
 import uno.data.SystemInfoWindows
+import uno.engine.Game
+import uno.engine.engineExceptions.GameRulesException
+import uno.util.MetricsRegistry
+import java.io.*
+import java.nio.file.Files
+import java.nio.file.Path
+import java.nio.file.Paths
+import kotlin.random.Random
+import kotlin.system.exitProcess
 
 /**
  * This class is responsible for booting the cli.
@@ -30,15 +39,120 @@ import uno.data.SystemInfoWindows
 object Booter {
 
     private const val DEFAULT_USER_NAME = "player"
+    private const val BATCH_OPTION = "--batch"
+    private const val DAEMON_OPTION = "--daemon"
+
+    /**
+     * Boots the cli, in batch mode if `--batch` is among the arguments, or as
+     * a [Daemon] for [DaemonClient]s if `--daemon` is. Exits with status 1 if
+     * the arguments are invalid.
+     *
+     * Batch mode options, all optional:
+     * ```
+     * --players N    players, the user included (2)
+     * --seed S       seed of the game (random)
+     * --script F     file with the commands (standard input)
+     * --name N       name of the user's player (player)
+     * --output O     machine, quiet or interactive (machine)
+     * ```
+     * Batch runs are short lived, so unless told otherwise by the
+     * [MetricsRegistry.JMX_PROPERTY] system property the engine's metrics
+     * aren't registered with JMX, which would take longer than the run.
+     *
+     * @see BatchCLI
+     */
+    @JvmStatic
+    fun boot(args: Array<String>) {
+        if (args.contains(DAEMON_OPTION)) return Daemon.serve()
+        if (args.contains(BATCH_OPTION) &&
+                System.getProperty(MetricsRegistry.JMX_PROPERTY) == null)
+            System.setProperty(MetricsRegistry.JMX_PROPERTY, "false")
+        val status = run(args, System.`in`, System.out, System.err, Paths.get(""))
+        if (status != 0) exitProcess(status)
+    }
+
+    /**
+     * Runs the cli as [boot] would, but on the given streams, relative paths
+     * among the arguments being resolved against `directory`.
+     *
+     * @return exit status, 1 if the arguments are invalid and 0 otherwise
+     */
+    internal fun run(args: Array<String>, input: InputStream, output: OutputStream,
+                     error: PrintStream, directory: Path): Int {
+        if (!args.contains(BATCH_OPTION)) {
+            play(input, output)
+            return 0
+        }
+        val options = HashMap<String, String>()
+        var i = 0
+        while (i < args.size) {
+            if (args[i] == BATCH_OPTION) {
+                i++
+                continue
+            }
+            if (!args[i].startsWith("--") || i + 1 == args.size) {
+                error.println("Invalid argument ${args[i]}")
+                return 1
+            }
+            options[args[i].substring(2)] = args[i + 1]
+            i += 2
+        }
+        val numberOfPlayers: Int
+        val seed: Long
+        try {
+            numberOfPlayers = options["players"]?.toInt() ?: Game.MIN_NUMBER_OF_PLAYERS
+            seed = options["seed"]?.toLong() ?: Random.nextLong()
+        } catch (e: NumberFormatException) {
+            error.println("Invalid argument, --players and --seed take integers")
+            return 1
+        }
+        val script = options["script"]
+        val commands = try {
+            if (script == null) BufferedReader(InputStreamReader(input))
+            else Files.newBufferedReader(directory.resolve(script))
+        } catch (e: IOException) {
+            error.println("Can't read the script $script")
+            return 1
+        }
+        val writer = OutputStreamWriter(output)
+        val renderer = when (options["output"] ?: "machine") {
+            "machine" -> MachineRenderer(writer)
+            "quiet" -> QuietRenderer(writer)
+            "interactive" -> InteractiveRenderer(writer)
+            else -> {
+                error.println("Unknown output ${options["output"]}")
+                return 1
+            }
+        }
+        commands.use {
+            try {
+                BatchCLI(numberOfPlayers, seed, options["name"] ?: DEFAULT_USER_NAME,
+                        commands, renderer).run()
+            } catch (e: GameRulesException) {
+                error.println(e.message)
+                return 1
+            }
+        }
+        return 0
+    }
 
     /**
      * Boots the cli.
      */
     @JvmStatic
-    fun boot() {
+    fun boot() = play(System.`in`, System.out)
+
+    private fun play(input: InputStream, output: OutputStream) {
+        val cli = CLI(userName(), InteractiveRenderer(OutputStreamWriter(output)),
+                BufferedReader(InputStreamReader(input)))
+        ConfigReader.watch()
+        cli.start()
+    }
+
+    private fun userName(): String {
         val userName: String
         val system: SystemInfo
-        val configFileUserName = ConfigReader.get("user", "name") as String?
+        val configFileUserName = CliSettings.binding.get().userName
         val os = os
         when {
             configFileUserName != null -> {
@@ -46,12 +160,12 @@ object Booter {
             }
             os == OS.UNIX -> {
                 system = SystemInfoUnix.getInstance()
-                userName = system.userName
+                // USER may be unset, as for daemons
+                userName = system.userName ?: DEFAULT_USER_NAME
             }
             else -> userName = DEFAULT_USER_NAME
         }
-        val cli = CLI(userName)
-        cli.start()
+        return userName
     }
 
     private val os: OS?
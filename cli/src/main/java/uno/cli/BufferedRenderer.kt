@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import java.io.Writer
+
+/**
+ * Base of the renderers, which keeps the output of a turn in a reused buffer
+ * and writes it to `output` in one go.
+ *
+ * @param output where to write, flushed along with the renderer
+ *
+ * @author Fábio Furtado
+ */
+abstract class BufferedRenderer(private val output: Writer) : Renderer {
+
+    /**
+     * Output gathered since the last flush.
+     */
+    protected val buffer = StringBuilder(INITIAL_CAPACITY)
+
+    /**
+     * @see Renderer.flush
+     */
+    override fun flush() {
+        if (buffer.isNotEmpty()) {
+            output.append(buffer)
+            buffer.setLength(0)
+        }
+        output.flush()
+    }
+
+    private companion object {
+        const val INITIAL_CAPACITY = 1024
+    }
+}
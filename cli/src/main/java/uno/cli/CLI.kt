@@ -17,48 +17,59 @@
 
 package uno.cli
 
-import uno.data.ConfigReader
 import uno.engine.CardColour
-import uno.engine.CardType
 import uno.engine.Game
 import uno.engine.GameCommand
 import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
 import uno.engine.engineExceptions.MissingColourForWildCardException
 import uno.engine.objects.*
+import java.io.BufferedReader
+import java.io.InputStreamReader
+import java.io.OutputStreamWriter
 import kotlin.random.Random
 
 /**
  * A command line interface for the uno game.
  *
+ * Everything is shown through `renderer`, flushed once per turn and before
+ * reading from the user.
+ *
+ * While the user thinks about a move, a [MoveAnalyzer] plays the game out in
+ * the background to tell them, if asked, how likely each move is to win. It's
+ * cancelled as soon as they act.
+ *
  * @author Fábio Furtado
  */
-class CLI(_humanPlayerName: String) {
+class CLI(_humanPlayerName: String, private val renderer: Renderer,
+          private val input: BufferedReader) {
 
     private val humanPlayerName = _humanPlayerName
     private var game = Game.createGame(askForNumberOfPlayers() - 1, _humanPlayerName)
 
-    private val promptSymbol: String
-    private val enableBotDelay: Boolean
-    private val commandsHelp = buildCommandsHelpString()
-    private val invalidMoveErrorMessage = "The move you chose is not valid"
+    private val settings = CliSettings.binding
+    private val analyzer = MoveAnalyzer()
+    private var analysis: MoveAnalyzer.Analysis? = null
+    private val commandsHelp by lazy { buildCommandsHelpString() }
 
-    init {
-        val sym = ConfigReader.get("cli", "prompt_symbol")
-        promptSymbol = if (sym != null) sym as String else "> "
-        val delay = ConfigReader.get("bot_delay")
-        enableBotDelay = if (delay != null) delay as Boolean else true
-    }
+    /**
+     * Creates an instance which reads from the standard input and writes to
+     * the standard output.
+     */
+    constructor(humanPlayerName: String):
+            this(humanPlayerName, InteractiveRenderer(OutputStreamWriter(System.out)),
+                 BufferedReader(InputStreamReader(System.`in`)))
 
     private fun buildCommandsHelpString(): String {
         val columnsForPrefix = 18
         val sb = StringBuilder()
         val commands = arrayOf(
                 Command.PRINT_HAND, Command.PLAY_A_CARD, Command.DRAW,
-                Command.PRINT_RIVALS_HAND_LENGTH, Command.RESTART, Command.EXIT,
-                Command.HELP)
+                Command.PRINT_RIVALS_HAND_LENGTH, Command.ANALYZE, Command.RESTART,
+                Command.EXIT, Command.HELP)
         val messages = arrayOf(
                 "Print your hand\n", "Play a card\n", "Draw a card\n",
-                "Check how many cards your opponents have\n", "Restart the game\n",
+                "Check how many cards your opponents have\n",
+                "Estimate your odds of winning with each move\n", "Restart the game\n",
                 "Exit the game\n", "Print this helper\n")
         for (i in commands.indices) {
             val commandValue = CommandValuesKeeper.getValue(commands[i])
@@ -83,11 +94,11 @@ class CLI(_humanPlayerName: String) {
         var choice: Int
         do {
             try {
-                choice = readLine()!!.trim().toInt()
+                choice = readInput().trim().toInt()
                 if (choice < beginning || choice > end)
-                    print("Invalid value, insert a number between $beginning and $end: ")
+                    renderer.text("Invalid value, insert a number between $beginning and $end: ")
             } catch (e: NumberFormatException) {
-                print("Invalid input, insert a number between $beginning and $end: ")
+                renderer.text("Invalid input, insert a number between $beginning and $end: ")
                 return readValueInRange(beginning, end)
             }
         } while (choice < beginning || choice > end)
@@ -95,7 +106,7 @@ class CLI(_humanPlayerName: String) {
     }
 
     /**
-     * Reads a valid option from the standard input.
+     * Reads a valid option from the input.
      *
      * The given strings define which options are valid.
      *
@@ -104,7 +115,7 @@ class CLI(_humanPlayerName: String) {
      */
     fun readValidOption(vararg valid: String): String {
         do {
-            val choice = readLine()!!
+            val choice = readInput()
             for (element in valid) {
                 if (element == choice) {
                     return element
@@ -114,20 +125,16 @@ class CLI(_humanPlayerName: String) {
     }
 
     /**
-     * Prints a String description of given `card`.
+     * Reads a line from the input, after showing everything rendered so far.
      */
-    private fun printCard(card: Card) {
-        if (card.type == CardType.WILD) printWild(card as WildCard)
-        else print(card.toString())
-    }
-
-    private fun printWild(wildCard: WildCard) {
-        print(wildCard.toString())
+    private fun readInput(): String {
+        renderer.flush()
+        return input.readLine()!!
     }
 
     private fun askForNumberOfPlayers(): Int {
-        println("\nWelcome to UNO!!\n")
-        print("How many players will your game have?: ")
+        renderer.text("\nWelcome to UNO!!\n\n")
+        renderer.text("How many players will your game have?: ")
         return readValueInRange(
                 Game.MIN_NUMBER_OF_PLAYERS,
                 Game.MAX_NUMBER_OF_PLAYERS
@@ -135,45 +142,53 @@ class CLI(_humanPlayerName: String) {
     }
 
     fun start() {
-        var run = true
-        while (run) {
-            printTableTop()
-            print("  |  ")
-            printTurn()
-            println()
-            if (game.playerInTurn is HumanPlayer) {
-                if (!prompt()) run = false
-            } else {
-                val move = game.goBot()
-                if (enableBotDelay) addBotThinkingDelay()
-                reportMove(move)
-            }
-            warnIfRivalIsAboutToWin()
-            if (game.isOver) {
-                println("\nGAME OVER!!!\n${game.winner!!.id} Won!")
-                run = false
+        try {
+            var run = true
+            while (run) {
+                renderer.turn(game.playerInTurn.id, game.tableTop)
+                if (game.playerInTurn is HumanPlayer) {
+                    if (!prompt()) run = false
+                } else {
+                    val move = game.goBot()
+                    if (settings.get().botDelay) {
+                        renderer.flush()
+                        addBotThinkingDelay()
+                    }
+                    reportMove(move)
+                }
+                warnIfRivalIsAboutToWin()
+                if (game.isOver) {
+                    renderer.gameOver(game.winner!!.id)
+                    run = false
+                }
+                renderer.flush()
             }
+        } finally {
+            // also when the input fails, like a daemon client disconnecting
+            stopAnalysis()
         }
     }
 
     private fun prompt(): Boolean {
         var keepPlaying = true
-        print(promptSymbol)
-        val cliCommand = readLine()!!.trim().split(" ").toTypedArray()
-        println()
+        if (analysis == null) analysis = analyzer.analyze(game, humanPlayerName)
+        renderer.text(settings.get().promptSymbol)
+        val cliCommand = readInput().trim().split(" ").toTypedArray()
+        renderer.text("\n")
         if (cliCommand.isNotEmpty() && cliCommand[0].isNotEmpty()) {
-            if (CommandValuesKeeper.isEngineConvertible(cliCommand[0]))
+            if (CommandValuesKeeper.isEngineConvertible(cliCommand[0])) {
+                stopAnalysis()
                 drawOrPlayACard(cliCommand)
-            else if (CommandValuesKeeper.isCliExclusive(cliCommand[0])) {
+            } else if (CommandValuesKeeper.isCliExclusive(cliCommand[0])) {
                 if (cliCommand.size == 1)
                     keepPlaying = doForCliExclusiveCommand(cliCommand[0])
-                else println(
-                    "No arguments expected for the <${cliCommand[0]}> command\n"
+                else renderer.error(
+                    "No arguments expected for the <${cliCommand[0]}> command"
                 )
-            } else println(
+            } else renderer.error(
                 "Invalid command <${cliCommand[0]}>, type " +
                 "<${CommandValuesKeeper.getValue(Command.HELP)}> to see the " +
-                "available ones\n"
+                "available ones"
             )
         } else {
             prompt()
@@ -185,17 +200,41 @@ class CLI(_humanPlayerName: String) {
         var keepPlaying = true
         when (cliCommand) {
             CommandValuesKeeper.getValue(Command.HELP)
-                          -> println(commandsHelp)
+                          -> renderer.text(commandsHelp + "\n")
             CommandValuesKeeper.getValue(Command.PRINT_HAND)
                           -> printHand(game.playerInTurn.id)
             CommandValuesKeeper.getValue(Command.PRINT_RIVALS_HAND_LENGTH)
                           -> printNumberOfCardsEachRivalPlayerHas()
-            CommandValuesKeeper.getValue(Command.RESTART) -> restart()
-            CommandValuesKeeper.getValue(Command.EXIT) -> keepPlaying = false
+            CommandValuesKeeper.getValue(Command.ANALYZE) -> printWinOdds()
+            CommandValuesKeeper.getValue(Command.RESTART) -> {
+                stopAnalysis()
+                restart()
+            }
+            CommandValuesKeeper.getValue(Command.EXIT) -> {
+                stopAnalysis()
+                keepPlaying = false
+            }
         }
         return keepPlaying
     }
 
+    /**
+     * Shows the odds found by the running analysis, giving it at least
+     * [CliSettings.analysisMillis] since the prompt showed up. It goes on afterwards, so
+     * asking again gives better estimates.
+     */
+    private fun printWinOdds() {
+        val analysis = analysis ?: return
+        renderer.flush()
+        analysis.awaitMillis(settings.get().analysisMillis)
+        renderer.winOdds(humanPlayerName, analysis.odds())
+    }
+
+    private fun stopAnalysis() {
+        analysis?.cancel()
+        analysis = null
+    }
+
     private fun drawOrPlayACard(cliCommand: Array<String>) {
         val move: GameCommand
         val executionResult: Int
@@ -205,7 +244,7 @@ class CLI(_humanPlayerName: String) {
             if (executionResult == 0)
                 reportMove(move)
             else if (executionResult == 1)
-                println(invalidMoveErrorMessage)
+                renderer.invalidMove(cliCommand.joinToString(" "))
         } catch (e: CommandFormatException) {
             if (e.message == String.format(
                         CLItoEngineCommandConverter.insufficientArgumentsErrorMessage,
@@ -215,11 +254,10 @@ class CLI(_humanPlayerName: String) {
                 corrected[1] = pickIndex().toString()
                 drawOrPlayACard(corrected)
             } else {
-                println(e.message)
-                println()
+                renderer.error(e.message.toString())
             }
         } catch (cardIndexOutOfHandBoundsException: CardIndexOutOfHandBoundsException) {
-            println("Invalid card index\n")
+            renderer.error("Invalid card index")
         } catch (e: MissingColourForWildCardException) {
             val corrected = cliCommand.copyOf(cliCommand.size + 1) as Array<String>
             corrected[2] = pickWildCardColour()
@@ -230,20 +268,20 @@ class CLI(_humanPlayerName: String) {
     private fun pickIndex(): Int {
         val index: Int
         val playerInTurn = game.playerInTurn
-        println("You have to choose the index of the card you wish to play")
+        renderer.text("You have to choose the index of the card you wish to play\n")
         printHand(playerInTurn.id)
-        print("Choose please: ")
+        renderer.text("Choose please: ")
         index = readValueInRange(1, playerInTurn.hand.size)
         return index
     }
 
     private fun pickWildCardColour(): String {
         val colour: String
-        print("You have to pick a colour for your wild card,\n"
+        renderer.text("You have to pick a colour for your wild card,\n"
                 + "1) Blue\n" + "2) Red\n" + "3) Green\n"
                 + "4) Yellow\n" + "please choose a colour: ")
         val choice = readValueInRange(1, 4)
-        println()
+        renderer.text("\n")
         colour = when (choice) {
             1 -> CommandValuesKeeper.getValue(CardColour.BLUE)
             2 -> CommandValuesKeeper.getValue(CardColour.RED)
@@ -253,64 +291,27 @@ class CLI(_humanPlayerName: String) {
         return colour
     }
 
-    private fun printTableTop() {
-        print("Table Top: ")
-        printCard(game.tableTop)
-    }
-
-    private fun printTurn() {
-        println("It's ${game.playerInTurn.id}'s turn")
-    }
-
     /**
-     * Prints a String representation of the chosen player's hand.
+     * Shows the chosen player's hand.
      *
      * @param playerID player in stake.
      */
     private fun printHand(playerID: String) {
-        println("${playerID}'s hand: \n")
-        val hand = game.getPlayer(playerID).orElseThrow().hand
-        for (i in hand.indices) {
-            print("${i + 1} - ")
-            printCard(hand[i])
-            println()
-        }
-        println()
+        renderer.hand(playerID, game.getPlayer(playerID).orElseThrow().hand)
     }
 
     private fun reportMove(move: GameCommand) {
-        val playerID = game.previousPlayer.id
-        if (move.option == 0)
-            println("$playerID has drawn a card")
-        else if (move.option == 1) {
-            print("$playerID has played a ")
-            printCard(game.tableTop)
-            println()
-        }
-        println()
+        renderer.move(game.previousPlayer.id, move, game.tableTop)
     }
 
     private fun printNumberOfCardsEachRivalPlayerHas() {
-        val numberOfPlayers = game.numberOfPlayers
-        val card = "card"
-        val cards = "cards"
-        for (i in 0 until numberOfPlayers) {
-            val player = game.getPlayer(i).orElseThrow()
-            if (player.id != humanPlayerName) {
-                val hand = player.hand
-                if (hand.size > 1)
-                    println("${player.id} -> ${player.hand.size} $cards left")
-                else
-                    println("${player.id} -> ${player.hand.size} $card left")
-                println()
-            }
-        }
+        renderer.handSizes(game.getPlayers().filter { it.id != humanPlayerName })
     }
 
     private fun warnIfRivalIsAboutToWin() {
         val previousPlayer = game.previousPlayer
         if (previousPlayer.hand.size == 1 && previousPlayer.id != humanPlayerName)
-            println("CAREFUL: ${previousPlayer.id} has only one card left\n")
+            renderer.lastCard(previousPlayer.id)
     }
 
     private fun restart() {
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.data.Config
+import uno.data.ConfigBinding
+import uno.data.ConfigReader
+
+/**
+ * The settings of the CLI, taken from the config files.
+ *
+ * @author Fábio Furtado
+ */
+internal class CliSettings private constructor(config: Config) {
+
+    /**
+     * Name of the user's player, null to use the system user's
+     */
+    val userName: String? = config.getString("user.name", null)
+
+    /**
+     * If true, bots take a while to play, as if thinking
+     */
+    val botDelay = config.getBoolean("bot_delay", true)
+
+    /**
+     * Symbol the prompt starts with
+     */
+    val promptSymbol: String = config.getString("cli.prompt_symbol", "> ")
+
+    /**
+     * Time the `analyze` command gives its simulations, at least
+     */
+    val analysisMillis = config.getLong("cli.analysis_millis", 1000)
+
+    companion object {
+
+        /**
+         * The current settings, updated when the config files are reloaded.
+         */
+        val binding: ConfigBinding<CliSettings> = ConfigReader.bind(::CliSettings)
+    }
+}
@@ -20,5 +20,6 @@ package uno.cli
  * @author Fábio Furtado
  */
 internal enum class Command {
-    PRINT_HAND, PLAY_A_CARD, DRAW, PRINT_RIVALS_HAND_LENGTH, HELP, RESTART, EXIT
+    PRINT_HAND, PLAY_A_CARD, DRAW, PRINT_RIVALS_HAND_LENGTH, HELP, RESTART, EXIT,
+    ANALYZE
 }
\ No newline at end of file
@@ -50,6 +50,7 @@ final class CommandValuesKeeper {
         commands.put(Command.PRINT_HAND, "p");
         commands.put(Command.PRINT_RIVALS_HAND_LENGTH, "pl");
         commands.put(Command.HELP, "help");
+        commands.put(Command.ANALYZE, "analyze");
         commands.put(Command.EXIT, "exit");
         commands.put(Command.RESTART, "restart");
         engineCommands.put(Command.DRAW, "d");
@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import java.io.*
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.net.SocketException
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.nio.file.Paths
+import java.security.MessageDigest
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Keeps a JVM running to host the sessions of [DaemonClient]s, each one on its
+ * own thread and run by [Booter.run] with the client's standard streams, as
+ * described by [DaemonProtocol].
+ *
+ * Settings come from the config files of the directory the daemon was started
+ * in, which is its clients' working directory too as they only find daemons
+ * started in theirs. The interactive mode names the player after the daemon's
+ * user.
+ *
+ * @author Fábio Furtado
+ */
+internal object Daemon {
+
+    /**
+     * Time without sessions after which the daemon stops.
+     */
+    private val IDLE_MILLIS = TimeUnit.HOURS.toMillis(3)
+
+    private val sessions = AtomicInteger()
+
+    @Volatile
+    private var lastSession = System.nanoTime()
+
+    /**
+     * Serves clients until asked to stop or idle for too long.
+     */
+    fun serve() {
+        val file = DaemonProtocol.stateFile()
+        val token = DaemonProtocol.newToken()
+        val server = ServerSocket(0, 50, InetAddress.getLoopbackAddress())
+        val threads = AtomicInteger()
+        val workers = Executors.newCachedThreadPool(ThreadFactory { task ->
+            val thread = Thread(task, "uno-daemon-session-${threads.incrementAndGet()}")
+            thread.isDaemon = true
+            thread
+        })
+        DaemonProtocol.writeState(file, server.localPort, token)
+        println("Serving on port ${server.localPort}, state in $file")
+        watchIdleness(server)
+        try {
+            while (true) {
+                val socket = try {
+                    server.accept()
+                } catch (e: SocketException) {
+                    break
+                }
+                workers.execute { session(socket, token, server) }
+            }
+        } finally {
+            // Unless another daemon replaced it
+            if (DaemonProtocol.readState(file)?.get(1) == token) Files.deleteIfExists(file)
+            println("Stopped")
+        }
+    }
+
+    private fun watchIdleness(server: ServerSocket) {
+        val watcher = Thread(Runnable {
+            while (!server.isClosed) {
+                Thread.sleep(TimeUnit.MINUTES.toMillis(1))
+                val idle = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastSession)
+                if (sessions.get() == 0 && idle > IDLE_MILLIS) server.close()
+            }
+        }, "uno-daemon-idleness")
+        watcher.isDaemon = true
+        watcher.start()
+    }
+
+    private fun session(socket: Socket, token: String, server: ServerSocket) {
+        socket.use {
+            val input = DataInputStream(BufferedInputStream(socket.getInputStream()))
+            val output = DataOutputStream(BufferedOutputStream(socket.getOutputStream()))
+            try {
+                val given = input.readUTF().toByteArray(StandardCharsets.UTF_8)
+                if (!MessageDigest.isEqual(given, token.toByteArray(StandardCharsets.UTF_8)))
+                    return
+                if (input.readByte() == DaemonProtocol.STOP) {
+                    DaemonProtocol.writeFrame(output, DaemonProtocol.EXIT, 0)
+                    server.close()
+                    return
+                }
+                val directory = Paths.get(input.readUTF())
+                val args = Array(input.readInt()) { input.readUTF() }
+                sessions.incrementAndGet()
+                val status = try {
+                    val error = PrintStream(
+                        DaemonProtocol.FrameOutputStream(output, DaemonProtocol.ERR), true)
+                    try {
+                        Booter.run(args, DaemonProtocol.FrameInputStream(input),
+                                DaemonProtocol.FrameOutputStream(output, DaemonProtocol.OUT),
+                                error, directory)
+                    } catch (e: RuntimeException) {
+                        e.printStackTrace(error)
+                        1
+                    }
+                } finally {
+                    lastSession = System.nanoTime()
+                    sessions.decrementAndGet()
+                }
+                DaemonProtocol.writeFrame(output, DaemonProtocol.EXIT, status)
+            } catch (e: IOException) {
+                // The client went away
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A thin client which runs CLI sessions on a daemon, a JVM kept running in
+ * the background, rather than in its own JVM. The daemon has the engine loaded
+ * and compiled from previous sessions, so a session starts and runs about as
+ * fast as it would deep into a long one. This class only uses the JDK, so
+ * starting it costs little more than starting the JVM.
+ * <p>The arguments are the CLI's, {@code --batch} included, and are run by the
+ * daemon as if in a new process started in the client's working directory.
+ * The standard streams are forwarded and the client exits with the session's
+ * status. If no daemon is running for this build and working directory one is
+ * started there, so it reads the same config files as the client would, and
+ * keeps running until it's been idle for three hours or {@code --stop} is
+ * given in the same directory.
+ *
+ * @author Fábio Furtado
+ */
+public final class DaemonClient {
+
+    /**
+     * Time to wait for a daemon to start
+     */
+    private static final long START_TIMEOUT_MILLIS = 20_000;
+    private static final String STOP_OPTION = "--stop";
+
+    /**
+     * Not to be instantiated
+     */
+    private DaemonClient() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        boolean stop = args.length == 1 && args[0].equals(STOP_OPTION);
+        Path file = DaemonProtocol.stateFile();
+        String[] state = DaemonProtocol.readState(file);
+        Socket socket = connect(state);
+        if (socket == null) {
+            if (stop) {
+                System.err.println("No daemon is running");
+                return;
+            }
+            startDaemon(file);
+            long deadline = System.nanoTime() + START_TIMEOUT_MILLIS * 1_000_000;
+            while (socket == null) {
+                if (System.nanoTime() - deadline > 0) {
+                    System.err.println("The daemon didn't start, see " + logFile(file));
+                    System.exit(1);
+                }
+                Thread.sleep(20);
+                state = DaemonProtocol.readState(file);
+                socket = connect(state);
+            }
+        }
+        System.exit(run(socket, state[1], stop, args));
+    }
+
+    /**
+     * Connects to the daemon with the given state.
+     *
+     * @return the connection, null if there's no daemon
+     */
+    private static Socket connect(String[] state) {
+        if (state == null) return null;
+        try {
+            return new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(state[0]));
+        } catch (IOException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Starts a daemon in the background, its output going to a log file next
+     * to its state file.
+     */
+    private static void startDaemon(Path file) throws IOException {
+        List<String> command = new ArrayList<>();
+        // Out of the terminal's session, so it survives interrupting the client
+        if (Files.isExecutable(Paths.get("/usr/bin/setsid")))
+            command.add("/usr/bin/setsid");
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("uno.cli.MainKt");
+        command.add("--daemon");
+        File log = logFile(file).toFile();
+        Process daemon = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        daemon.getOutputStream().close();
+    }
+
+    private static Path logFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".log");
+    }
+
+    /**
+     * Runs the request, forwarding the standard streams until the daemon
+     * tells the exit status.
+     */
+    private static int run(Socket socket, String token, boolean stop, String[] args)
+            throws IOException {
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(socket.getInputStream()));
+        output.writeUTF(token);
+        if (stop) output.writeByte(DaemonProtocol.STOP);
+        else {
+            output.writeByte(DaemonProtocol.RUN);
+            output.writeUTF(Paths.get("").toAbsolutePath().toString());
+            output.writeInt(args.length);
+            for (String arg : args)
+                output.writeUTF(arg);
+            Thread forwarder = new Thread(() -> forwardInput(output), "uno-client-input");
+            forwarder.setDaemon(true);
+            forwarder.start();
+        }
+        output.flush();
+        byte[] buffer = new byte[8192];
+        try {
+            while (true) {
+                byte type = input.readByte();
+                int length = input.readInt();
+                if (type == DaemonProtocol.EXIT) return length;
+                OutputStream stream = type == DaemonProtocol.ERR ? System.err : System.out;
+                while (length > 0) {
+                    int read = input.read(buffer, 0, Math.min(length, buffer.length));
+                    if (read == -1) throw new EOFException();
+                    stream.write(buffer, 0, read);
+                    length -= read;
+                }
+                stream.flush();
+            }
+        } catch (EOFException e) {
+            System.err.println("The daemon closed the connection");
+            return 1;
+        }
+    }
+
+    /**
+     * Sends the standard input to the daemon, then the frame ending it.
+     */
+    private static void forwardInput(DataOutputStream output) {
+        OutputStream frames = new DaemonProtocol.FrameOutputStream(output, DaemonProtocol.IN);
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = System.in.read(buffer)) != -1) {
+                frames.write(buffer, 0, read);
+                frames.flush();
+            }
+            DaemonProtocol.writeFrame(output, DaemonProtocol.END, 0);
+        } catch (IOException e) {
+            // The session is over
+        }
+    }
+}
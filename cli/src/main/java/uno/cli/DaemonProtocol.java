@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.List;
+
+/**
+ * What the {@link DaemonClient} and the daemon hosting its sessions agree on.
+ * <p>The daemon listens on a loopback port which it writes, along with a
+ * secret token, to its state file. The file is readable by its user only and
+ * named after the class path and the working directory, so a client only
+ * finds a daemon running the same build as itself, started in the same
+ * directory and so reading the same config files.
+ * <p>A client opens a connection by sending the token and a request byte. A
+ * {@link #RUN} request goes on with the client's working directory and its
+ * arguments, then the client's standard input in {@link #IN} frames, ended by
+ * an {@link #END} frame. The daemon answers with {@link #OUT} and
+ * {@link #ERR} frames, then an {@link #EXIT} frame with the exit status. Each
+ * frame is its type byte, the length of its data as an int, and the data. The
+ * token, directory and arguments are written with
+ * {@link DataOutputStream#writeUTF(String)}.
+ *
+ * @author Fábio Furtado
+ */
+final class DaemonProtocol {
+
+    /**
+     * Request to run a session
+     */
+    static final byte RUN = 1;
+
+    /**
+     * Request for the daemon to stop
+     */
+    static final byte STOP = 2;
+
+    /**
+     * Frame with standard input
+     */
+    static final byte IN = 'I';
+
+    /**
+     * Frame closing the standard input
+     */
+    static final byte END = 'E';
+
+    /**
+     * Frame with standard output
+     */
+    static final byte OUT = 'O';
+
+    /**
+     * Frame with standard error
+     */
+    static final byte ERR = 'R';
+
+    /**
+     * Frame with the exit status, the length being the status itself
+     */
+    static final byte EXIT = 'X';
+
+    /**
+     * Not to be instantiated
+     */
+    private DaemonProtocol() {}
+
+    /**
+     * Returns the state file of the daemon for this user, build and working
+     * directory.
+     *
+     * @return path of the file, which may not exist
+     */
+    static Path stateFile() {
+        long hash = System.getProperty("java.home").hashCode();
+        hash = 31 * hash + Paths.get("").toAbsolutePath().hashCode();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            hash = 31 * hash + entry.hashCode();
+            hash = 31 * hash + new File(entry).lastModified();
+        }
+        return Paths.get(System.getProperty("java.io.tmpdir"),
+                "uno-daemon-" + System.getProperty("user.name") + "-"
+                        + Long.toHexString(hash));
+    }
+
+    /**
+     * Returns a new secret token.
+     *
+     * @return the token
+     */
+    static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder(32);
+        for (byte b : bytes)
+            token.append(String.format("%02x", b));
+        return token.toString();
+    }
+
+    /**
+     * Writes the state file, replacing any previous one at once.
+     *
+     * @param file  the state file
+     * @param port  port the daemon listens on
+     * @param token the daemon's token
+     * @throws IOException if the file can't be written
+     */
+    static void writeState(Path file, int port, String token) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix"))
+            Files.createFile(temporary, PosixFilePermissions.asFileAttribute(
+                    PosixFilePermissions.fromString("rw-------")));
+        Files.write(temporary, (port + " " + token + "\n").getBytes(StandardCharsets.UTF_8));
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the state file.
+     *
+     * @param file the state file
+     * @return the port and token, null if there's no valid file
+     */
+    static String[] readState(Path file) {
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) return null;
+            String[] state = lines.get(0).split(" ");
+            return state.length == 2 ? state : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads the data of the {@link #IN} frames of a connection, up to the
+     * {@link #END} frame.
+     */
+    static final class FrameInputStream extends InputStream {
+
+        private final DataInputStream input;
+        private int remaining;
+        private boolean ended;
+
+        FrameInputStream(DataInputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextData()) return -1;
+            int b = input.read();
+            if (b == -1) throw new EOFException("The connection was closed");
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (!nextData()) return -1;
+            int read = input.read(buffer, offset, Math.min(length, remaining));
+            if (read == -1) throw new EOFException("The connection was closed");
+            remaining -= read;
+            return read;
+        }
+
+        /**
+         * Makes sure there's data left in the current frame, reading frames
+         * as needed.
+         *
+         * @return false if the input ended
+         */
+        private boolean nextData() throws IOException {
+            while (remaining == 0) {
+                if (ended) return false;
+                byte type = input.readByte();
+                int length = input.readInt();
+                if (type == END) ended = true;
+                else if (type == IN) remaining = length;
+                else throw new IOException("Unexpected frame " + type);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes everything as frames of one type. Many can share a connection.
+     */
+    static final class FrameOutputStream extends OutputStream {
+
+        private final DataOutputStream output;
+        private final byte type;
+
+        FrameOutputStream(DataOutputStream output, byte type) {
+            this.output = output;
+            this.type = type;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return;
+            synchronized (output) {
+                output.writeByte(type);
+                output.writeInt(length);
+                output.write(buffer, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (output) {
+                output.flush();
+            }
+        }
+    }
+
+    /**
+     * Writes a frame without data.
+     *
+     * @param output connection to write to
+     * @param type   type of the frame
+     * @param value  value taking the place of the length
+     * @throws IOException if the connection fails
+     */
+    static void writeFrame(DataOutputStream output, byte type, int value) throws IOException {
+        synchronized (output) {
+            output.writeByte(type);
+            output.writeInt(value);
+            output.flush();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.GameCommand
+import uno.engine.objects.Card
+import uno.engine.objects.Player
+import java.io.Writer
+
+/**
+ * Renders a game as text for a person playing it.
+ *
+ * @param output where to write
+ *
+ * @author Fábio Furtado
+ */
+open class InteractiveRenderer(output: Writer) : BufferedRenderer(output) {
+
+    override fun gameStarted(seed: Long, numberOfPlayers: Int, humanPlayer: String,
+                             tableTop: Card) {}
+
+    override fun turn(player: String, tableTop: Card) {
+        buffer.append("Table Top: ").append(tableTop).append("  |  ")
+              .append("It's ").append(player).append("'s turn\n\n")
+    }
+
+    override fun move(player: String, move: GameCommand, tableTop: Card) {
+        if (move.option == 0)
+            buffer.append(player).append(" has drawn a card\n\n")
+        else buffer.append(player).append(" has played a ").append(tableTop).append("\n\n")
+    }
+
+    override fun lastCard(player: String) {
+        buffer.append("CAREFUL: ").append(player).append(" has only one card left\n\n")
+    }
+
+    override fun hand(player: String, hand: List<Card>) {
+        buffer.append(player).append("'s hand: \n\n")
+        for (i in hand.indices)
+            buffer.append(i + 1).append(" - ").append(hand[i]).append('\n')
+        buffer.append('\n')
+    }
+
+    override fun handSizes(players: List<Player>) {
+        for (player in players) {
+            val size = player.hand.size
+            buffer.append(player.id).append(" -> ").append(size)
+                  .append(if (size > 1) " cards left\n\n" else " card left\n\n")
+        }
+    }
+
+    override fun winOdds(player: String, odds: List<MoveOdds>) {
+        var rollouts = 0L
+        for (move in odds) rollouts += move.rollouts
+        buffer.append("Odds of ").append(player).append(" winning, after ")
+              .append(rollouts).append(" simulated games:\n\n")
+        for (move in odds) {
+            val start = buffer.length
+            if (move.move.option == 0)
+                buffer.append(CommandValuesKeeper.getValue(Command.DRAW))
+            else {
+                buffer.append(CommandValuesKeeper.getValue(Command.PLAY_A_CARD))
+                      .append(' ').append(move.move.index + 1)
+                if (move.move.colour != null)
+                    buffer.append(' ').append(CommandValuesKeeper.getValue(move.move.colour))
+            }
+            padTo(start + 14)
+            buffer.append(move.card ?: "Draw a card")
+            padTo(start + 40)
+            buffer.append(String.format("%5.1f%%", move.odds * 100)).append('\n')
+        }
+        buffer.append('\n')
+    }
+
+    private fun padTo(length: Int) {
+        do buffer.append(' ') while (buffer.length < length)
+    }
+
+    override fun gameOver(winner: String) {
+        buffer.append("\nGAME OVER!!!\n").append(winner).append(" Won!\n")
+    }
+
+    override fun invalidMove(command: String) {
+        buffer.append("The move you chose is not valid\n")
+    }
+
+    override fun error(message: String) {
+        buffer.append(message).append("\n\n")
+    }
+
+    override fun text(text: String) {
+        buffer.append(text)
+    }
+
+    override fun finished(games: Int, errors: Int) {}
+}
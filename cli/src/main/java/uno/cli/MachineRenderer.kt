@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.GameCommand
+import uno.engine.objects.Card
+import uno.engine.objects.Player
+import java.io.Writer
+
+/**
+ * Renders a game as tab separated lines for programs to read, the first field
+ * naming the event:
+ * ```
+ * game     <seed> <number of players> <human player>
+ * top      <card>
+ * move     <player> draw
+ * move     <player> play <card> [<colour picked>]
+ * invalid  <line number> <command>
+ * error    <line number> <message>
+ * hand     <player> <card>...
+ * hands    <player>=<number of cards>...
+ * odds     <player> draw|<card index> [<colour picked>] <wins> <rollouts>
+ * over     <winner>
+ * end      <games played> <errors>
+ * ```
+ * Turns, warnings and text for people are left out. Line numbers are those
+ * given to [command], 0 if none was.
+ *
+ * @param output where to write
+ *
+ * @author Fábio Furtado
+ */
+class MachineRenderer(output: Writer) : BufferedRenderer(output) {
+
+    private var line = 0
+
+    override fun gameStarted(seed: Long, numberOfPlayers: Int, humanPlayer: String,
+                             tableTop: Card) {
+        buffer.append("game\t").append(seed).append('\t').append(numberOfPlayers)
+              .append('\t').append(humanPlayer).append('\n')
+        buffer.append("top\t").append(tableTop).append('\n')
+    }
+
+    override fun turn(player: String, tableTop: Card) {}
+
+    override fun move(player: String, move: GameCommand, tableTop: Card) {
+        buffer.append("move\t").append(player)
+        if (move.option == 0) buffer.append("\tdraw")
+        else {
+            buffer.append("\tplay\t").append(tableTop)
+            if (move.colour != null)
+                buffer.append('\t').append(CommandValuesKeeper.getValue(move.colour))
+        }
+        buffer.append('\n')
+    }
+
+    override fun lastCard(player: String) {}
+
+    override fun hand(player: String, hand: List<Card>) {
+        buffer.append("hand\t").append(player)
+        for (card in hand)
+            buffer.append('\t').append(card)
+        buffer.append('\n')
+    }
+
+    override fun handSizes(players: List<Player>) {
+        buffer.append("hands")
+        for (player in players)
+            buffer.append('\t').append(player.id).append('=').append(player.hand.size)
+        buffer.append('\n')
+    }
+
+    override fun winOdds(player: String, odds: List<MoveOdds>) {
+        for (move in odds) {
+            buffer.append("odds\t").append(player).append('\t')
+            if (move.move.option == 0) buffer.append("draw")
+            else {
+                buffer.append(move.move.index + 1)
+                if (move.move.colour != null)
+                    buffer.append('\t').append(CommandValuesKeeper.getValue(move.move.colour))
+            }
+            buffer.append('\t').append(move.wins).append('\t').append(move.rollouts)
+                  .append('\n')
+        }
+    }
+
+    override fun gameOver(winner: String) {
+        buffer.append("over\t").append(winner).append('\n')
+    }
+
+    override fun command(line: Int, command: String) {
+        this.line = line
+    }
+
+    override fun invalidMove(command: String) {
+        buffer.append("invalid\t").append(line).append('\t').append(command).append('\n')
+    }
+
+    override fun error(message: String) {
+        buffer.append("error\t").append(line).append('\t').append(message).append('\n')
+    }
+
+    override fun text(text: String) {}
+
+    override fun finished(games: Int, errors: Int) {
+        buffer.append("end\t").append(games).append('\t').append(errors).append('\n')
+    }
+}
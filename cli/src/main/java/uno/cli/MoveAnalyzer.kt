@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.CardColour
+import uno.engine.Game
+import uno.engine.GameCommand
+import uno.engine.GameSnapshot
+import uno.engine.objects.BotPlayer
+import uno.engine.objects.Card
+import uno.engine.objects.WildCard
+import java.util.Collections
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.ThreadFactory
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.LongAdder
+import kotlin.random.Random
+import kotlin.random.asKotlinRandom
+
+/**
+ * Estimates how likely a player is to win after each of their legal moves, by
+ * playing the game out many times from the current position with
+ * [BotPlayer.firstValidMove] in every seat.
+ *
+ * The player can't see the rivals' hands nor the deck, so each rollout deals
+ * those cards anew at random, every rival keeping the number of cards they
+ * have, while the player's hand and the table stay as they are. Rollouts are
+ * played on [Game.simulate] games, so they don't count as games played, and
+ * take the moves in turns until the analysis is cancelled or [MAX_MILLIS]
+ * pass.
+ *
+ * Every analyzer of the process shares one pool of daemon threads, one per
+ * processor, so sessions served by the same process don't each keep their own.
+ * Rollouts run in slices of [SLICE_MILLIS], after which they make way for the
+ * other analyses waiting for the pool.
+ *
+ * @author Fábio Furtado
+ */
+internal class MoveAnalyzer {
+
+    /**
+     * Starts analysing the moves of `player`, whose turn it must be, in
+     * `game`. The game is only read here, so it may be played right after.
+     */
+    fun analyze(game: Game, player: String) = Analysis(game, player)
+
+    /**
+     * Rollouts in progress for one position.
+     */
+    inner class Analysis internal constructor(game: Game, private val player: String) {
+
+        private val snapshot = game.snapshot()
+        private val seat = game.getIndex(player)
+        private val hand = snapshot.players[seat].hand
+        private val unseen = ArrayList<Card>(snapshot.deck)
+        private val moves = ArrayList<GameCommand>()
+        private val cards = ArrayList<Card?>()
+        private val wins: Array<LongAdder>
+        private val rollouts: Array<LongAdder>
+        private val started = System.nanoTime()
+        private val stopAt = started + TimeUnit.MILLISECONDS.toNanos(MAX_MILLIS)
+
+        @Volatile
+        private var cancelled = false
+
+        init {
+            for (i in snapshot.players.indices)
+                if (i != seat) unseen.addAll(snapshot.players[i].hand)
+            for (i in hand.indices) {
+                if (!game.isCardValid(hand[i])) continue
+                if (hand[i] is WildCard) {
+                    for (colour in CardColour.values()) {
+                        moves.add(GameCommand.of(i, colour))
+                        cards.add(hand[i])
+                    }
+                } else {
+                    moves.add(GameCommand.of(i))
+                    cards.add(hand[i])
+                }
+            }
+            moves.add(GameCommand.of())
+            cards.add(null)
+            wins = Array(moves.size) { LongAdder() }
+            rollouts = Array(moves.size) { LongAdder() }
+            for (i in 0 until Workers.size) Workers.pool.execute(Slice(i))
+        }
+
+        /**
+         * Stops the rollouts. The odds gathered so far can still be read.
+         */
+        fun cancel() {
+            cancelled = true
+        }
+
+        /**
+         * Waits until the analysis has been running for `millis`, returning
+         * at once if it already has.
+         */
+        fun awaitMillis(millis: Long) {
+            val remaining = started + TimeUnit.MILLISECONDS.toNanos(millis) - System.nanoTime()
+            if (remaining > 0 && !cancelled) TimeUnit.NANOSECONDS.sleep(remaining)
+        }
+
+        /**
+         * Returns the odds of each move so far, from the best to the worst.
+         */
+        fun odds(): List<MoveOdds> {
+            val odds = ArrayList<MoveOdds>(moves.size)
+            for (i in moves.indices)
+                odds.add(MoveOdds(moves[i], cards[i], wins[i].sum(), rollouts[i].sum()))
+            odds.sortByDescending { it.odds }
+            return odds
+        }
+
+        /**
+         * A worker's share of the rollouts, which queues itself back on the
+         * pool after each slice until the analysis ends.
+         */
+        private inner class Slice(private var next: Int) : Runnable {
+
+            private val deal = ArrayList<Card>(unseen)
+
+            override fun run() {
+                val random = ThreadLocalRandom.current()
+                val bots = random.asKotlinRandom()
+                val sliceEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SLICE_MILLIS)
+                while (!cancelled && System.nanoTime() < stopAt) {
+                    if (System.nanoTime() >= sliceEnd) {
+                        Workers.pool.execute(this)
+                        return
+                    }
+                    val move = next++ % moves.size
+                    Collections.shuffle(deal, random)
+                    val game = Game.simulate(determinize(deal, random.nextLong()))
+                    game.executeMove(moves[move])
+                    val winner = playOut(game, bots) ?: continue
+                    rollouts[move].increment()
+                    if (winner == player) wins[move].increment()
+                }
+            }
+        }
+
+        /**
+         * Returns the position with the unseen cards dealt in the order of
+         * `deal`.
+         */
+        private fun determinize(deal: List<Card>, randomState: Long): GameSnapshot {
+            var dealt = 0
+            val players = snapshot.players.mapIndexed { i, it ->
+                val cards = if (i == seat) it.hand
+                            else deal.subList(dealt, dealt + it.hand.size)
+                if (i != seat) dealt += it.hand.size
+                GameSnapshot.PlayerSnapshot(it.id, true, cards)
+            }
+            return GameSnapshot(players, deal.subList(dealt, deal.size), snapshot.table,
+                    snapshot.turn, snapshot.previous, snapshot.direction,
+                    snapshot.lastPickedColour, randomState)
+        }
+
+        /**
+         * Plays the game to its end, returning the winner's id, or null if it
+         * takes longer than [MAX_MOVES].
+         */
+        private fun playOut(game: Game, random: Random): String? {
+            var moves = 0
+            while (!game.isOver) {
+                if (moves++ == MAX_MOVES) return null
+                game.executeMove(BotPlayer.firstValidMove(game.playerInTurn.hand, game, random))
+            }
+            return game.winner!!.id
+        }
+    }
+
+    companion object {
+
+        /**
+         * Time after which an analysis stops by itself, so a player who walks
+         * away doesn't keep every core busy.
+         */
+        const val MAX_MILLIS = 60_000L
+
+        /**
+         * Moves after which a rollout is given up on.
+         */
+        private const val MAX_MOVES = 2000
+
+        /**
+         * Time a worker keeps a thread of the pool before queueing back.
+         */
+        private const val SLICE_MILLIS = 20L
+    }
+
+    /**
+     * Holds the pool shared by every analyzer, so it's only started when the
+     * first analysis is.
+     */
+    private object Workers {
+
+        val size = Runtime.getRuntime().availableProcessors()
+
+        private val threads = AtomicInteger()
+
+        val pool: ExecutorService = Executors.newFixedThreadPool(size, ThreadFactory { task ->
+            val thread = Thread(task, "uno-analysis-${threads.incrementAndGet()}")
+            thread.isDaemon = true
+            thread
+        })
+    }
+}
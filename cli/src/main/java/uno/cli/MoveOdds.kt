@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.GameCommand
+import uno.engine.objects.Card
+
+/**
+ * How often a move led to a win in the rollouts of a [MoveAnalyzer].
+ *
+ * @property move     the move
+ * @property card     card the move plays, null if it draws
+ * @property wins     rollouts won after the move
+ * @property rollouts rollouts played after the move
+ *
+ * @author Fábio Furtado
+ */
+class MoveOdds(val move: GameCommand, val card: Card?, val wins: Long, val rollouts: Long) {
+
+    /**
+     * Estimated probability of winning after the move, 0 if it wasn't tried.
+     */
+    val odds: Double
+        get() = if (rollouts == 0L) 0.0 else wins.toDouble() / rollouts
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.GameCommand
+import uno.engine.objects.Card
+import java.io.Writer
+
+/**
+ * Renders only how games end, what went wrong and what's explicitly asked
+ * for, like hands, leaving out every turn and move. Meant for long runs whose
+ * output is only skimmed.
+ *
+ * @param output where to write
+ *
+ * @author Fábio Furtado
+ */
+class QuietRenderer(output: Writer) : InteractiveRenderer(output) {
+
+    override fun turn(player: String, tableTop: Card) {}
+
+    override fun move(player: String, move: GameCommand, tableTop: Card) {}
+
+    override fun lastCard(player: String) {}
+
+    override fun gameOver(winner: String) {
+        buffer.append(winner).append(" won\n")
+    }
+
+    override fun invalidMove(command: String) {
+        buffer.append("Invalid move: ").append(command).append('\n')
+    }
+
+    override fun error(message: String) {
+        buffer.append(message).append('\n')
+    }
+
+    override fun text(text: String) {}
+
+    override fun finished(games: Int, errors: Int) {
+        buffer.append(games).append(if (games == 1) " game, " else " games, ")
+              .append(errors).append(if (errors == 1) " error\n" else " errors\n")
+    }
+}
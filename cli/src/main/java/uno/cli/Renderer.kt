@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.cli
+
+import uno.engine.GameCommand
+import uno.engine.objects.Card
+import uno.engine.objects.Player
+
+/**
+ * Presents what happens in a game to the user.
+ *
+ * Implementations gather everything into a buffer and only write it out on
+ * [flush], which the CLI calls once per turn and before reading the user's
+ * input, so a turn costs a single write however many things it reports.
+ *
+ * @author Fábio Furtado
+ */
+interface Renderer {
+
+    /**
+     * Reports a new game, dealt from `seed`, with `tableTop` flipped.
+     */
+    fun gameStarted(seed: Long, numberOfPlayers: Int, humanPlayer: String, tableTop: Card)
+
+    /**
+     * Reports whose turn it is.
+     */
+    fun turn(player: String, tableTop: Card)
+
+    /**
+     * Reports a move made by `player`, `tableTop` being the table's top card
+     * after it.
+     */
+    fun move(player: String, move: GameCommand, tableTop: Card)
+
+    /**
+     * Warns that `player` has a single card left.
+     */
+    fun lastCard(player: String)
+
+    /**
+     * Shows the cards in the hand of `player`.
+     */
+    fun hand(player: String, hand: List<Card>)
+
+    /**
+     * Shows how many cards each of the given players has.
+     */
+    fun handSizes(players: List<Player>)
+
+    /**
+     * Shows the odds of winning after each move of `player`, from the best to
+     * the worst.
+     */
+    fun winOdds(player: String, odds: List<MoveOdds>)
+
+    /**
+     * Reports the end of the game.
+     */
+    fun gameOver(winner: String)
+
+    /**
+     * Notes the command about to be run, coming from the given line of a
+     * script, for renderers which refer to it.
+     */
+    fun command(line: Int, command: String) {}
+
+    /**
+     * Reports a move refused by the rules.
+     */
+    fun invalidMove(command: String)
+
+    /**
+     * Reports a command which couldn't be run.
+     */
+    fun error(message: String)
+
+    /**
+     * Shows text meant for a person, like prompts and help, which
+     * non-interactive renderers leave out.
+     */
+    fun text(text: String)
+
+    /**
+     * Reports the end of a script.
+     */
+    fun finished(games: Int, errors: Int)
+
+    /**
+     * Writes out everything reported since the last flush.
+     */
+    fun flush()
+}
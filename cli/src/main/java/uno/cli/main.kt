@@ -22,4 +22,4 @@ import uno.cli.Booter.boot
  * @author Fábio Furtado
  */
 
-fun main() = boot()
+fun main(args: Array<String>) = boot(args)
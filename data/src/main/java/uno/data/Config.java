@@ -0,0 +1,254 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.data;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * An immutable tree of settings, as read from one or more configuration files.
+ * <p>Settings are looked up by their path, the keys leading to them joined by
+ * dots, like {@code cli.prompt_symbol}, to any depth. The typed getters take
+ * the value to return if the setting is missing and throw a
+ * {@link ConfigException} if it's there with the wrong type.
+ *
+ * @author Fábio Furtado
+ */
+public final class Config {
+
+    /**
+     * A configuration without settings.
+     */
+    public static final Config EMPTY = new Config(Collections.emptyMap());
+
+    private final Map<String, Object> values;
+
+    private Config(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * Returns a configuration holding a copy of the given values, nested maps
+     * being sections.
+     *
+     * @param values settings, as parsed from YAML
+     * @return the configuration
+     */
+    public static Config of(Map<?, ?> values) {
+        return values.isEmpty() ? EMPTY : new Config(freeze(values));
+    }
+
+    /**
+     * Returns a configuration with the settings of this one and, for those
+     * this one lacks, the ones of {@code fallback}. Sections are merged.
+     *
+     * @param fallback where to take missing settings from
+     * @return the merged configuration
+     */
+    public Config withFallback(Config fallback) {
+        if (fallback.values.isEmpty()) return this;
+        if (values.isEmpty()) return fallback;
+        return new Config(merge(values, fallback.values));
+    }
+
+    /**
+     * Returns the value of the setting with the given path, a nested section
+     * being an unmodifiable map.
+     *
+     * @param path keys joined by dots
+     * @return the value, null if the setting is missing
+     */
+    public Object get(String path) {
+        return get(path.split("\\."));
+    }
+
+    /**
+     * Returns the value of the setting the given keys lead to.
+     *
+     * @param keys keys of the sections leading to the setting, then its own
+     * @return the value, null if the setting is missing
+     */
+    public Object get(String... keys) {
+        Object value = values;
+        for (String key : keys) {
+            if (!(value instanceof Map)) return null;
+            value = ((Map<?, ?>) value).get(key);
+        }
+        return value;
+    }
+
+    /**
+     * Checks if the setting with the given path is there.
+     *
+     * @param path keys joined by dots
+     * @return true if it is, false if not
+     */
+    public boolean has(String path) {
+        return get(path) != null;
+    }
+
+    /**
+     * Returns the given setting as a string. Numbers and booleans are
+     * converted.
+     *
+     * @param path         keys joined by dots
+     * @param defaultValue value to return if the setting is missing
+     * @return the value
+     * @throws ConfigException if the setting is a section or a list
+     */
+    public String getString(String path, String defaultValue) {
+        Object value = get(path);
+        if (value == null) return defaultValue;
+        if (value instanceof Map || value instanceof List)
+            throw wrongType(path, "a value", value);
+        return value.toString();
+    }
+
+    /**
+     * Returns the given setting as a boolean.
+     *
+     * @param path         keys joined by dots
+     * @param defaultValue value to return if the setting is missing
+     * @return the value
+     * @throws ConfigException if the setting isn't a boolean
+     */
+    public boolean getBoolean(String path, boolean defaultValue) {
+        Object value = get(path);
+        if (value == null) return defaultValue;
+        if (!(value instanceof Boolean)) throw wrongType(path, "yes or no", value);
+        return (Boolean) value;
+    }
+
+    /**
+     * Returns the given setting as an int.
+     *
+     * @param path         keys joined by dots
+     * @param defaultValue value to return if the setting is missing
+     * @return the value
+     * @throws ConfigException if the setting isn't a whole number an int holds
+     */
+    public int getInt(String path, int defaultValue) {
+        long value = getLong(path, defaultValue);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+            throw wrongType(path, "a smaller number", value);
+        return (int) value;
+    }
+
+    /**
+     * Returns the given setting as a long.
+     *
+     * @param path         keys joined by dots
+     * @param defaultValue value to return if the setting is missing
+     * @return the value
+     * @throws ConfigException if the setting isn't a whole number a long holds
+     */
+    public long getLong(String path, long defaultValue) {
+        Object value = get(path);
+        if (value == null) return defaultValue;
+        if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte)
+            return ((Number) value).longValue();
+        if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64)
+            return ((BigInteger) value).longValue();
+        throw wrongType(path, "a whole number", value);
+    }
+
+    /**
+     * Returns the given section.
+     *
+     * @param path keys joined by dots
+     * @return the section, {@link #EMPTY} if it's missing
+     * @throws ConfigException if the setting isn't a section
+     */
+    public Config getConfig(String path) {
+        Object value = get(path);
+        if (value == null) return EMPTY;
+        if (!(value instanceof Map)) throw wrongType(path, "a section", value);
+        return new Config(section(value));
+    }
+
+    /**
+     * Checks if this configuration has no settings.
+     *
+     * @return true if it has none
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other
+                || other instanceof Config && values.equals(((Config) other).values);
+    }
+
+    @Override
+    public int hashCode() {
+        return values.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+
+    private static ConfigException wrongType(String path, String expected, Object value) {
+        return new ConfigException("Expected " + expected + " for " + path + " but got "
+                + value);
+    }
+
+    private static Map<String, Object> freeze(Map<?, ?> map) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : map.entrySet())
+            copy.put(String.valueOf(entry.getKey()), freezeValue(entry.getValue()));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Object freezeValue(Object value) {
+        if (value instanceof Map) return freeze((Map<?, ?>) value);
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value)
+                copy.add(freezeValue(element));
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /**
+     * Casts a map held by a configuration. Safe since every such map was
+     * copied by {@link #freeze(Map)}, which keys it by strings.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> section(Object map) {
+        return (Map<String, Object>) map;
+    }
+
+    private static Map<String, Object> merge(Map<String, Object> values,
+                                             Map<String, Object> fallback) {
+        Map<String, Object> merged = new LinkedHashMap<>(fallback);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            Object other = fallback.get(entry.getKey());
+            if (value instanceof Map && other instanceof Map)
+                value = merge(section(value), section(other));
+            merged.put(entry.getKey(), value);
+        }
+        return Collections.unmodifiableMap(merged);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.data;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Settings of some component, resolved from the configuration into an
+ * immutable object of type {@code T} once, rather than looked up and cast on
+ * every use. Created by {@link ConfigReader#bind(Function)}.
+ * <p>When the configuration is reloaded the object is resolved again and
+ * replaced, all at once, so code calling {@link #get()} whenever it needs the
+ * settings switches to the new ones on its next call and never sees half of
+ * them.
+ *
+ * @param <T> type of the settings
+ * @author Fábio Furtado
+ */
+public final class ConfigBinding<T> implements Supplier<T> {
+
+    private final Function<Config, T> resolver;
+    private volatile T value;
+
+    ConfigBinding(Function<Config, T> resolver, Config config) {
+        this.resolver = resolver;
+        this.value = Objects.requireNonNull(resolver.apply(config));
+    }
+
+    /**
+     * Returns the settings resolved from the current configuration.
+     *
+     * @return the settings
+     */
+    @Override
+    public T get() {
+        return value;
+    }
+
+    /**
+     * Resolves the settings from the given configuration, without using them
+     * yet.
+     *
+     * @return action replacing the settings with the resolved ones
+     * @throws ConfigException if the configuration has invalid settings
+     */
+    Runnable resolve(Config config) {
+        T resolved = Objects.requireNonNull(resolver.apply(config));
+        return () -> value = resolved;
+    }
+}
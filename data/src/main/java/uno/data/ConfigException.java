@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.data;
+
+/**
+ * Thrown when a setting holds a value of the wrong type, or a configuration
+ * file can't be read.
+ *
+ * @author Fábio Furtado
+ */
+public class ConfigException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ConfigException(String detailMessage) {
+        super(detailMessage);
+    }
+
+    public ConfigException(String detailMessage, Throwable cause) {
+        super(detailMessage, cause);
+    }
+}
@@ -19,11 +19,15 @@ package uno.data;
 
 import org.yaml.snakeyaml.Yaml;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static java.nio.file.StandardWatchEventKinds.*;
 
 
 /**
@@ -31,20 +35,37 @@ import java.util.Scanner;
  * The values are stored in memory thru a key value system, supporting nested
  * values. This class has no writing functionality whatsoever as it's only meant
  * the read the configs which are externally written on the program's config file.
+ * <p>Settings are looked up in layers: the {@value #CONFIGURATIONS_FILE_NAME}
+ * file in the working directory, then the one in the program's config home
+ * (see {@link SystemInfo#getProgramConfigHome()}), then the defaults each
+ * {@link ConfigBinding} is given. Components {@link #bind(Function)} their
+ * settings once and read them from the binding, which {@link #reload()}
+ * updates, as does {@link #watch()} whenever a file changes.
+ * <p>The files are read by the first lookup, not when this class is loaded,
+ * and SnakeYAML is only loaded if there is a file to parse.
  *
  * @author Fábio Furtado
  */
 public class ConfigReader {
 
     /**
-     * Map with the settings
+     * Name of the config file in each of the directories looked into
      */
-    private static final Map<String, Object> settings = load();
+    private static final String CONFIGURATIONS_FILE_NAME = "uno.yml";
 
     /**
-     * Location in the disk where to look for the config file
+     * Time to wait for more changes to the files before reloading them, as
+     * editors often save in more than one step
      */
-    private static final String CONFIGURATIONS_FILE_LOCATION = "uno.yml";
+    private static final long RELOAD_DELAY_MILLIS = 100;
+
+    /**
+     * Guards reloads and the bindings
+     */
+    private static final Object lock = new Object();
+
+    private static final List<ConfigBinding<?>> bindings = new ArrayList<>();
+    private static Thread watcher;
 
     /**
      * Not to be instantiated
@@ -52,61 +73,216 @@ public class ConfigReader {
     private ConfigReader() {}
 
     /**
-     * Returns the value of the setting corresponding to the given key or keys
-     * (if nested). Will always return null if the config file was not found.
+     * Holds the current configuration, which is loaded along with this class
+     * on first use.
+     */
+    private static final class Current {
+
+        private static volatile Config config = load();
+    }
+
+    /**
+     * Returns the value of the setting corresponding to the given keys, one
+     * per level of nesting. Will always return null if no config file was
+     * found.
      *
-     * @param keys can be a single or multiple keys depending if the value is
-     *             nested
-     * @return value of the setting corresponding to the given key or keys, null
-     *         if the value does not exist or maybe the config file is missing
+     * @param keys keys of the sections leading to the setting, then its own
+     * @return value of the setting corresponding to the given keys, null if
+     *         the value does not exist or maybe the config file is missing
      */
     public static Object get(String... keys) {
-        Object value = null;
-        try {
-            if (keys.length == 1)
-                value = settings.get(keys[0]);
-            else if (keys.length == 2) {
-                Map<String, Object> sub = (Map<String, Object>) settings.get(keys[0]);
-                if (sub != null)
-                    return sub.get(keys[1]);
+        return Current.config.get(keys);
+    }
+
+    /**
+     * Returns the current configuration, the files merged.
+     *
+     * @return the configuration
+     */
+    public static Config config() {
+        return Current.config;
+    }
+
+    /**
+     * Resolves settings from the current configuration, and again on every
+     * reload. If the current configuration has invalid settings, the reason
+     * is printed to the standard error and the defaults are used until a
+     * reload brings valid ones, as {@link #reload()} would keep the previous
+     * settings.
+     *
+     * @param resolver makes the settings out of a configuration, taking the
+     *                 defaults for the ones missing
+     * @param <T>      type of the settings
+     * @return binding with the settings
+     */
+    public static <T> ConfigBinding<T> bind(Function<Config, T> resolver) {
+        synchronized (lock) {
+            ConfigBinding<T> binding;
+            try {
+                binding = new ConfigBinding<>(resolver, Current.config);
+            } catch (ConfigException e) {
+                System.err.println("The configuration is invalid, using the defaults: "
+                        + e.getMessage());
+                binding = new ConfigBinding<>(resolver, Config.EMPTY);
             }
-        } catch (NullPointerException ignored) {
-            // Thrown if trying to access a nested value from a parent which
-            // does not exist
+            bindings.add(binding);
+            return binding;
         }
-        return value;
     }
 
     /**
-     * Checks if the config file was found by the time this object was initialized
+     * Checks if a config file was found by the time the settings were first
+     * looked up, or last reloaded.
      * If the return value is false the {@link ConfigReader#get(String...)} method
      * will return null for any value requested.
      *
      * @return true if the config file exists, false if not
      */
     public static boolean configFileExists() {
-        return settings.size() > 0;
+        return !Current.config.isEmpty();
+    }
+
+    /**
+     * Reads the config files again and, if the settings changed, updates
+     * every binding. Nothing changes if a file can't be read or parsed, or a
+     * binding finds invalid settings; the reason is printed to the standard
+     * error.
+     *
+     * @return true if the settings changed
+     */
+    public static boolean reload() {
+        synchronized (lock) {
+            try {
+                Config config = read(true);
+                if (config.equals(Current.config)) return false;
+                List<Runnable> updates = new ArrayList<>(bindings.size());
+                for (ConfigBinding<?> binding : bindings)
+                    updates.add(binding.resolve(config));
+                Current.config = config;
+                for (Runnable update : updates) update.run();
+                return true;
+            } catch (ConfigException e) {
+                System.err.println("The configuration was not reloaded: " + e.getMessage());
+                return false;
+            }
+        }
     }
 
     /**
-     * Loads the setting from the configuration file.
+     * Starts a daemon thread which calls {@link #reload()} whenever a config
+     * file is created, changed or deleted. Only directories which exist by
+     * then are watched. Does nothing if already watching.
      *
-     * @return map with the values, empty map if the file does not exist
+     * @throws ConfigException if the directories can't be watched
      */
-    private static Map<String, Object> load() {
-        File file = new File(CONFIGURATIONS_FILE_LOCATION);
-        StringBuilder sb = new StringBuilder();
-        Map<String, Object> map = new HashMap<>();
-        try (Scanner reader = new Scanner(file)) {
-            while (reader.hasNextLine()) {
-                sb.append(reader.nextLine());
-                sb.append("\n");
+    public static void watch() {
+        synchronized (lock) {
+            if (watcher != null) return;
+            WatchService service;
+            try {
+                service = FileSystems.getDefault().newWatchService();
+                for (Path layer : layers()) {
+                    Path directory = layer.toAbsolutePath().getParent();
+                    if (Files.isDirectory(directory))
+                        directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+                }
+            } catch (IOException e) {
+                throw new ConfigException("The config files can't be watched", e);
             }
-            Yaml yaml = new Yaml();
-            map = (Map<String, Object>) yaml.load(sb.toString());
-        } catch (FileNotFoundException ignored) {
+            watcher = new Thread(() -> watch(service), "uno-config-watcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+    }
+
+    private static void watch(WatchService service) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW || ((Path) event.context())
+                                .getFileName().toString().equals(CONFIGURATIONS_FILE_NAME))
+                            changed = true;
+                    }
+                    key.reset();
+                    key = service.poll(RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                } while (key != null);
+                if (changed) reload();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped watching
+        }
+    }
+
+    /**
+     * Returns the config files to look into, from the first to be looked up
+     * to the last.
+     */
+    private static List<Path> layers() {
+        List<Path> layers = new ArrayList<>(2);
+        layers.add(Paths.get(CONFIGURATIONS_FILE_NAME));
+        // SystemInfoWindows doesn't know the program's config home yet
+        if (!System.getProperty("os.name").toLowerCase().contains("windows"))
+            layers.add(Paths.get(SystemInfoUnix.getInstance().getProgramConfigHome(),
+                    CONFIGURATIONS_FILE_NAME));
+        return layers;
+    }
+
+    /**
+     * Loads the settings for the first time. Files which can't be read are
+     * reported to the standard error and left out.
+     */
+    private static Config load() {
+        Config config = read(false);
+        if (config.isEmpty())
             System.err.println("No configuration file could be found");
+        return config;
+    }
+
+    /**
+     * Reads and merges the config files.
+     *
+     * @param strict if true, a file which can't be read fails the whole read
+     *               rather than being left out
+     * @return the merged settings, empty if there are no files
+     * @throws ConfigException if strict and a file can't be read
+     */
+    private static Config read(boolean strict) {
+        Config config = Config.EMPTY;
+        for (Path layer : layers()) {
+            if (!Files.isRegularFile(layer)) continue;
+            try {
+                config = config.withFallback(parse(layer));
+            } catch (ConfigException e) {
+                if (strict) throw e;
+                System.err.println(e.getMessage());
+            }
+        }
+        return config;
+    }
+
+    /**
+     * Parses a config file.
+     *
+     * @param file file to parse
+     * @return the settings in it
+     * @throws ConfigException if the file can't be read or isn't a YAML map
+     */
+    private static Config parse(Path file) {
+        Object settings;
+        try {
+            settings = new Yaml().load(Files.readString(file));
+        } catch (IOException e) {
+            throw new ConfigException("The config file " + file + " could not be read", e);
+        } catch (RuntimeException e) {
+            throw new ConfigException("The config file " + file + " is not valid YAML: "
+                    + e.getMessage(), e);
         }
-        return map;
+        if (settings == null) return Config.EMPTY;
+        if (!(settings instanceof Map))
+            throw new ConfigException("The config file " + file + " holds no settings");
+        return Config.of((Map<?, ?>) settings);
     }
 }
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine
+
+import uno.engine.objects.AnytimeBot
+import uno.engine.objects.Bot
+import uno.engine.objects.Player
+import uno.util.MetricsRegistry
+import java.lang.invoke.MethodHandle
+import java.lang.invoke.MethodHandles
+import java.lang.invoke.MethodType
+import java.lang.management.ManagementFactory
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Measures the CPU time and memory bots use to decide.
+ *
+ * Every decision made by the engine goes through this object, which reads the
+ * thread's CPU time and allocated bytes from the `ThreadMXBean` before and
+ * after calling the bot. The figures are added up per bot implementation (the
+ * bot's fully qualified class name, so that classes with the same simple name
+ * don't share a counter) and per bot id (the player's id), and published in the
+ * default [MetricsRegistry] under `engine.bots.`.
+ *
+ * Allocation is only measured on JVMs whose bean is a
+ * `com.sun.management.ThreadMXBean`, and is reported as 0 otherwise. It's read
+ * with `getCurrentThreadAllocatedBytes` where available, from Java 14, as
+ * reading it by thread id allocates on earlier versions.
+ *
+ * @author Fábio Furtado
+ */
+object BotAccounting {
+
+    private const val IMPLEMENTATION_PREFIX = "engine.bots.implementation."
+    private const val ID_PREFIX = "engine.bots.id."
+    private val threads = ManagementFactory.getThreadMXBean()
+    private val allocations = threads as? com.sun.management.ThreadMXBean
+    private val byImplementation = ConcurrentHashMap<String, Account>()
+    private val byId = ConcurrentHashMap<String, Account>()
+    private val measuresCpu = threads.isCurrentThreadCpuTimeSupported
+    private val measuresAllocation = allocations != null && allocations.isThreadAllocatedMemorySupported
+    private val currentThreadAllocatedBytes: MethodHandle? = try {
+        MethodHandles.publicLookup().findVirtual(
+                com.sun.management.ThreadMXBean::class.java, "getCurrentThreadAllocatedBytes",
+                MethodType.methodType(java.lang.Long.TYPE))
+    } catch (e: NoSuchMethodException) {
+        null
+    }
+
+    /**
+     * Whether measuring allocation allocates itself, which is the case on JVMs
+     * older than Java 14. Allocation checks should disable the accounting then.
+     */
+    @JvmStatic
+    val allocatesToMeasure = measuresAllocation && currentThreadAllocatedBytes == null
+
+    /**
+     * Whether decisions are being measured. On by default.
+     */
+    @Volatile
+    @JvmStatic
+    var isEnabled = true
+
+    init {
+        if (measuresCpu && !threads.isThreadCpuTimeEnabled) threads.isThreadCpuTimeEnabled = true
+        if (measuresAllocation && !allocations!!.isThreadAllocatedMemoryEnabled)
+            allocations.isThreadAllocatedMemoryEnabled = true
+    }
+
+    /**
+     * Totals of a group of bots.
+     *
+     * @property decisions number of decisions made
+     * @property cpuNanos CPU time spent deciding, in nanoseconds
+     * @property allocatedBytes memory allocated while deciding, in bytes
+     */
+    class Usage(val decisions: Long, val cpuNanos: Long, val allocatedBytes: Long) {
+
+        /**
+         * Average CPU time of a decision, in nanoseconds.
+         */
+        val cpuNanosPerDecision: Double
+            get() = if (decisions == 0L) 0.0 else cpuNanos.toDouble() / decisions
+
+        /**
+         * Average memory allocated by a decision, in bytes.
+         */
+        val allocatedBytesPerDecision: Double
+            get() = if (decisions == 0L) 0.0 else allocatedBytes.toDouble() / decisions
+
+        override fun toString() =
+            "decisions=$decisions cpu=${cpuNanos}ns allocated=${allocatedBytes}B"
+    }
+
+    /**
+     * Calls [Bot.makeMove], measuring it.
+     */
+    @JvmStatic
+    fun makeMove(bot: Bot, game: UnoGame): GameCommand {
+        val measured = isEnabled
+        val start = System.nanoTime()
+        val cpu = if (measured) cpuTime() else 0L
+        val bytes = if (measured) allocatedBytes() else 0L
+        try {
+            return bot.makeMove(game)
+        } finally {
+            GameMetrics.botDecisions.record(System.nanoTime() - start)
+            if (measured) record(bot, cpu, bytes)
+        }
+    }
+
+    /**
+     * Calls [AnytimeBot.search], measuring it.
+     */
+    @JvmStatic
+    fun search(bot: AnytimeBot, game: UnoGame, deadline: Long, best: AnytimeBot.BestMove) {
+        val measured = isEnabled
+        val start = System.nanoTime()
+        val cpu = if (measured) cpuTime() else 0L
+        val bytes = if (measured) allocatedBytes() else 0L
+        try {
+            bot.search(game, deadline, best)
+        } finally {
+            GameMetrics.botDecisions.record(System.nanoTime() - start)
+            if (measured) record(bot, cpu, bytes)
+        }
+    }
+
+    /**
+     * Returns the totals of each bot implementation, by class name.
+     */
+    @JvmStatic
+    fun byImplementation(): Map<String, Usage> = usages(byImplementation)
+
+    /**
+     * Returns the totals of each bot, by player id.
+     */
+    @JvmStatic
+    fun byBot(): Map<String, Usage> = usages(byId)
+
+    /**
+     * Discards everything measured so far.
+     */
+    @JvmStatic
+    fun reset() {
+        byImplementation.clear()
+        byId.clear()
+        MetricsRegistry.getDefault().removeAll(IMPLEMENTATION_PREFIX)
+        MetricsRegistry.getDefault().removeAll(ID_PREFIX)
+    }
+
+    private fun record(bot: Bot, startCpu: Long, startBytes: Long) {
+        val cpu = cpuTime() - startCpu
+        val bytes = allocatedBytes() - startBytes
+        // look up before computing so known bots don't allocate a capturing lambda
+        val implementation = bot.javaClass.name
+        (byImplementation[implementation] ?: byImplementation.computeIfAbsent(implementation) {
+            Account(IMPLEMENTATION_PREFIX + implementation)
+        }).add(cpu, bytes)
+        if (bot is Player)
+            (byId[bot.id] ?: byId.computeIfAbsent(bot.id) { Account(ID_PREFIX + it) })
+                .add(cpu, bytes)
+    }
+
+    private fun cpuTime() = if (measuresCpu) threads.currentThreadCpuTime else 0L
+
+    private fun allocatedBytes(): Long {
+        if (!measuresAllocation) return 0L
+        val handle = currentThreadAllocatedBytes
+        return if (handle != null) handle.invokeExact(allocations!!) as Long
+        else allocations!!.getThreadAllocatedBytes(Thread.currentThread().id)
+    }
+
+    private fun usages(accounts: Map<String, Account>): Map<String, Usage> {
+        val usages = HashMap<String, Usage>()
+        for ((key, account) in accounts) usages[key] = account.usage()
+        return usages
+    }
+
+    /**
+     * Totals of a group, kept in the default [MetricsRegistry] under the given
+     * prefix.
+     */
+    private class Account(prefix: String) {
+        private val decisions = MetricsRegistry.getDefault().counter("$prefix.decisions")
+        private val cpuNanos = MetricsRegistry.getDefault().counter("$prefix.cpuNanos")
+        private val allocatedBytes = MetricsRegistry.getDefault().counter("$prefix.allocatedBytes")
+
+        fun add(cpu: Long, bytes: Long) {
+            decisions.increment()
+            cpuNanos.add(cpu)
+            allocatedBytes.add(bytes)
+        }
+
+        fun usage() = Usage(decisions.sum(), cpuNanos.sum(), allocatedBytes.sum())
+    }
+}
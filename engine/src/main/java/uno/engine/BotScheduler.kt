@@ -0,0 +1,436 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine
+
+import uno.engine.objects.AnytimeBot
+import uno.engine.objects.Bot
+import uno.engine.objects.BotPlayer
+import uno.util.LatencyHistogram
+import uno.util.MetricsRegistry
+import java.util.ArrayDeque
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.LongAdder
+import java.util.concurrent.locks.LockSupport
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.withLock
+
+/**
+ * A bounded pool of threads which compute bots' decisions for any number of
+ * tables.
+ *
+ * Decisions are queued per table and the tables with pending decisions are
+ * served in turns, so a table with an expensive bot can't hold back the
+ * others, and a table never has more than one decision being computed.
+ * Tables with human players are served before the ones with bots only, though
+ * one dispatch in [BACKGROUND_SHARE] goes to the latter so they don't starve.
+ *
+ * Each decision has a deadline, `budgetMillis` after being submitted, by which
+ * a move is always given. [AnytimeBot]s search until then and their best move
+ * so far is played. Any other move which isn't ready in time is replaced by
+ * the cheap policy of [BotPlayer.firstValidMove], as are decisions submitted
+ * while the queue is full. A watchdog thread hands out those moves as soon as
+ * the deadlines pass, and interrupts the bots still computing.
+ *
+ * @constructor creates a scheduler with the given number of threads, which
+ * falls back to the cheap policy once `capacity` decisions are queued
+ * @author Fábio Furtado
+ */
+class BotScheduler @JvmOverloads constructor(
+    val numberOfThreads: Int = Runtime.getRuntime().availableProcessors(),
+    private val capacity: Int = 4096,
+    val budgetMillis: Long = 200
+) : AutoCloseable {
+
+    /**
+     * Order in which tables are served.
+     */
+    enum class Priority {
+
+        /**
+         * A table with human players, who are waiting for the bot.
+         */
+        INTERACTIVE,
+
+        /**
+         * A table with bots only.
+         */
+        BACKGROUND;
+
+        companion object {
+
+            /**
+             * Returns the priority of the given game's table.
+             */
+            @JvmStatic
+            fun of(game: UnoGame): Priority {
+                for (player in game.getPlayers())
+                    if (player !is Bot) return INTERACTIVE
+                return BACKGROUND
+            }
+        }
+    }
+
+    /**
+     * Time decisions waited in the queue, in nanoseconds.
+     */
+    val queueWait = LatencyHistogram()
+
+    /**
+     * Time taken by bots to decide, in nanoseconds.
+     */
+    val computeTime = LatencyHistogram()
+
+    private val expired = LongAdder()
+    private val rejected = LongAdder()
+    private val fallbacks = LongAdder()
+    private val interrupted = LongAdder()
+    private val lock = ReentrantLock()
+    private val workAvailable = lock.newCondition()
+    private val tables = HashMap<Any, Table>()
+    private val ready = Array(Priority.values().size) { ArrayDeque<Table>() }
+    private var queued = 0
+    private var dispatches = 0L
+
+    @Volatile
+    private var running = true
+    private val workers = Array(numberOfThreads) { Worker(it) }
+    private val watchdog = Thread(Runnable { watch() }, "uno-bots-watchdog")
+
+    init {
+        if (numberOfThreads < 1) throw IllegalArgumentException("At least a thread is needed")
+        if (capacity < 1) throw IllegalArgumentException("The queue must hold a decision")
+        if (budgetMillis < 1) throw IllegalArgumentException("Bots need some time to decide")
+        for (worker in workers) worker.thread.start()
+        watchdog.isDaemon = true
+        watchdog.start()
+    }
+
+    /**
+     * Number of decisions which missed their deadline.
+     */
+    val numberOfExpired: Long
+        get() = expired.sum()
+
+    /**
+     * Number of decisions submitted while the queue was full.
+     */
+    val numberOfRejected: Long
+        get() = rejected.sum()
+
+    /**
+     * Number of moves made by the cheap policy instead of the bot.
+     */
+    val numberOfFallbacks: Long
+        get() = fallbacks.sum()
+
+    /**
+     * Number of bots interrupted by the watchdog.
+     */
+    val numberOfInterrupted: Long
+        get() = interrupted.sum()
+
+    /**
+     * Number of decisions waiting to be computed.
+     */
+    val numberOfQueued: Int
+        get() = lock.withLock { queued }
+
+    /**
+     * True if the queue is full, so new decisions would get the cheap policy.
+     */
+    val isSaturated: Boolean
+        get() = lock.withLock { queued >= capacity }
+
+    /**
+     * Adds this scheduler's metrics to the default [MetricsRegistry], their
+     * names starting with `prefix`.
+     */
+    fun publishMetrics(prefix: String) {
+        val registry = MetricsRegistry.getDefault()
+        registry.register(prefix + "queueWait", queueWait)
+        registry.register(prefix + "computeTime", computeTime)
+        registry.gauge(prefix + "queued") { numberOfQueued.toLong() }
+        registry.gauge(prefix + "expired") { numberOfExpired }
+        registry.gauge(prefix + "rejected") { numberOfRejected }
+        registry.gauge(prefix + "fallbacks") { numberOfFallbacks }
+        registry.gauge(prefix + "interrupted") { numberOfInterrupted }
+    }
+
+    /**
+     * Queues a decision of `bot` for the given table.
+     *
+     * The bot is called on one of the scheduler's threads, so `game` must not
+     * be modified by anyone else until the future completes. It's usually an
+     * independent copy of the table's game.
+     *
+     * @param table    any object identifying the table, like its game
+     * @param priority priority of the table
+     * @param bot      bot which must decide
+     * @param game     game the bot bases its decision on
+     * @return future with the bot's move, completed exceptionally with a
+     * [RejectedExecutionException] if the scheduler was closed
+     */
+    fun submit(table: Any, priority: Priority, bot: Bot, game: UnoGame)
+            : CompletableFuture<GameCommand> {
+        val now = System.nanoTime()
+        val decision = Decision(bot, game, priority, now,
+                now + TimeUnit.MILLISECONDS.toNanos(budgetMillis))
+        var saturated = false
+        lock.withLock {
+            if (!running) {
+                decision.future.completeExceptionally(
+                        RejectedExecutionException("The scheduler was closed"))
+                return decision.future
+            }
+            if (queued >= capacity) saturated = true
+            else {
+                val queue = tables.getOrPut(table) { Table(table) }
+                queue.decisions.addLast(decision)
+                queued++
+                if (!queue.active) {
+                    queue.active = true
+                    ready[priority.ordinal].addLast(queue)
+                    workAvailable.signal()
+                }
+            }
+        }
+        if (saturated) {
+            rejected.increment()
+            fallBack(decision)
+        }
+        return decision.future
+    }
+
+    /**
+     * Stops the threads. Queued decisions are completed exceptionally with a
+     * [RejectedExecutionException].
+     */
+    override fun close() {
+        val abandoned = ArrayList<Decision>()
+        lock.withLock {
+            running = false
+            for (table in tables.values) abandoned.addAll(table.decisions)
+            tables.clear()
+            for (queue in ready) queue.clear()
+            queued = 0
+            workAvailable.signalAll()
+        }
+        LockSupport.unpark(watchdog)
+        for (decision in abandoned)
+            decision.future.completeExceptionally(
+                    RejectedExecutionException("The scheduler was closed"))
+    }
+
+    private fun work(worker: Worker) {
+        while (true) {
+            var table: Table
+            var decision: Decision
+            lock.withLock {
+                while (running && ready.all { it.isEmpty() }) workAvailable.await()
+                if (!running) return
+                val interactive = ready[Priority.INTERACTIVE.ordinal]
+                val background = ready[Priority.BACKGROUND.ordinal]
+                dispatches++
+                table = if (background.isEmpty() ||
+                        (!interactive.isEmpty() && dispatches % BACKGROUND_SHARE != 0L))
+                    interactive.pollFirst()
+                else background.pollFirst()
+                decision = table.decisions.pollFirst()
+                queued--
+            }
+            worker.begin(decision)
+            try {
+                decide(decision)
+            } finally {
+                worker.end()
+            }
+            lock.withLock {
+                if (table.decisions.isEmpty()) {
+                    table.active = false
+                    tables.remove(table.key)
+                } else {
+                    ready[table.decisions.peekFirst().priority.ordinal].addLast(table)
+                    workAvailable.signal()
+                }
+            }
+        }
+    }
+
+    private fun decide(decision: Decision) {
+        if (decision.future.isDone) return
+        val start = System.nanoTime()
+        queueWait.record(start - decision.submitted)
+        if (start - decision.deadline > 0) {
+            expired.increment()
+            fallBack(decision)
+            return
+        }
+        try {
+            val bot = decision.bot
+            val move = if (bot is AnytimeBot) {
+                BotAccounting.search(bot, decision.game, decision.deadline, decision.best)
+                decision.best.move
+            } else BotAccounting.makeMove(bot, decision.game)
+            val end = System.nanoTime()
+            computeTime.record(end - start)
+            if (move == null) fallBack(decision)
+            else if (end - decision.deadline <= 0 || bot is AnytimeBot) decision.future.complete(move)
+            else if (!decision.future.isDone) {
+                expired.increment()
+                fallBack(decision)
+            }
+        } catch (e: InterruptedException) {
+            fallBack(decision)
+        } catch (e: Exception) {
+            if (decision.future.isDone) return
+            if (Thread.currentThread().isInterrupted) fallBack(decision)
+            else decision.future.completeExceptionally(e)
+        }
+    }
+
+    /**
+     * Completes the decision with the best move of an [AnytimeBot], or the
+     * cheap policy's.
+     */
+    private fun fallBack(decision: Decision) {
+        if (decision.future.isDone) return
+        val best = decision.best.move
+        if (best != null) {
+            decision.future.complete(best)
+            return
+        }
+        val move = try {
+            BotPlayer.firstValidMove(decision.game.playerInTurn.hand, decision.game)
+        } catch (e: Exception) {
+            decision.future.completeExceptionally(e)
+            return
+        }
+        if (decision.future.complete(move)) fallbacks.increment()
+    }
+
+    /**
+     * Watches the decisions being computed, answering for the bots which
+     * passed their deadline and interrupting them.
+     */
+    private fun watch() {
+        val interval = TimeUnit.MILLISECONDS.toNanos(budgetMillis) / WATCHDOG_CHECKS
+        while (running) {
+            LockSupport.parkNanos(this, interval)
+            val now = System.nanoTime()
+            for (worker in workers) {
+                val decision = worker.current ?: continue
+                if (now - decision.deadline <= 0) continue
+                if (!decision.future.isDone) {
+                    expired.increment()
+                    fallBack(decision)
+                }
+                if (worker.interrupt(decision)) interrupted.increment()
+            }
+        }
+    }
+
+    /**
+     * A thread of the pool and the decision it's computing.
+     */
+    private inner class Worker(index: Int) {
+
+        val thread = Thread(Runnable { work(this) }, "uno-bots-$index")
+
+        @Volatile
+        var current: Decision? = null
+            private set
+
+        init {
+            thread.isDaemon = true
+        }
+
+        fun begin(decision: Decision) {
+            current = decision
+        }
+
+        /**
+         * Clears the interrupt the watchdog may have sent, which must not
+         * reach the next decision.
+         */
+        @Synchronized
+        fun end() {
+            current = null
+            Thread.interrupted()
+        }
+
+        /**
+         * Interrupts the thread if it's still computing the given decision.
+         */
+        @Synchronized
+        fun interrupt(decision: Decision): Boolean {
+            if (current !== decision || thread.isInterrupted) return false
+            thread.interrupt()
+            return true
+        }
+    }
+
+    /**
+     * Decisions pending for a table. Guarded by the lock.
+     *
+     * @property active true while the table is waiting to be served or has a
+     * decision being computed
+     */
+    private class Table(val key: Any) {
+        val decisions = ArrayDeque<Decision>()
+        var active = false
+    }
+
+    private class Decision(
+        val bot: Bot,
+        val game: UnoGame,
+        val priority: Priority,
+        val submitted: Long,
+        val deadline: Long
+    ) {
+        val future = CompletableFuture<GameCommand>()
+        val best = AnytimeBot.BestMove()
+    }
+
+    companion object {
+
+        /**
+         * One in this many dispatches goes to a background table when
+         * interactive ones are waiting too.
+         */
+        const val BACKGROUND_SHARE = 8
+
+        /**
+         * Times the watchdog checks the bots within a budget.
+         */
+        private const val WATCHDOG_CHECKS = 20
+
+        /**
+         * The scheduler used by [UnoGame.goBotAsync], created on first use.
+         * Its metrics are published in the default [MetricsRegistry] under
+         * `engine.scheduler.`.
+         */
+        @JvmStatic
+        val default: BotScheduler by lazy {
+            val scheduler = BotScheduler()
+            scheduler.publishMetrics("engine.scheduler.")
+            scheduler
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine
+
+import uno.engine.objects.Card
+import uno.engine.objects.NumericCard
+import uno.engine.objects.SpecialCard
+import uno.engine.objects.WildCard
+
+/**
+ * Maps every distinct card to a small integer code and back, so cards can be
+ * written to compact binary formats.
+ *
+ * Codes always fit in a single byte:
+ * ```
+ * 0..39   numeric  colour * 10 + number
+ * 40..51  special  40 + colour * 3 + symbol
+ * 52..61  wild     52 + symbol * 5 + (0 if no colour, else colour + 1)
+ * ```
+ *
+ * @author Fábio Furtado
+ */
+object CardCodes {
+
+    private const val FIRST_SPECIAL = 40
+    private const val FIRST_WILD = 52
+
+    /**
+     * Number of distinct card codes.
+     */
+    const val COUNT = 62
+
+    private val colours = CardColour.values()
+    private val specialSymbols = SpecialCardSymbol.values()
+    private val wildSymbols = WildCardSymbol.values()
+
+    /**
+     * Returns the code of the given `card`.
+     */
+    @JvmStatic
+    fun encode(card: Card): Int = when (card) {
+        is NumericCard -> card.colour.ordinal * 10 + card.number
+        is SpecialCard -> FIRST_SPECIAL + card.colour.ordinal * 3 +
+                card.symbol.ordinal
+        is WildCard -> FIRST_WILD + card.symbol.ordinal * 5 +
+                if (card.colour.isPresent) card.colour.get().ordinal + 1 else 0
+        else -> throw IllegalArgumentException("Unknown card type: $card")
+    }
+
+    /**
+     * Returns the card with the given `code`.
+     *
+     * @throws IllegalArgumentException if the code does not belong to any card
+     */
+    @JvmStatic
+    fun decode(code: Int): Card = when (code) {
+        in 0 until FIRST_SPECIAL -> NumericCard.of(colours[code / 10], code % 10)
+        in FIRST_SPECIAL until FIRST_WILD -> {
+            val offset = code - FIRST_SPECIAL
+            SpecialCard.of(colours[offset / 3], specialSymbols[offset % 3])
+        }
+        in FIRST_WILD until COUNT -> {
+            val offset = code - FIRST_WILD
+            val symbol = wildSymbols[offset / 5]
+            if (offset % 5 == 0) WildCard.of(symbol)
+            else WildCard.of(symbol, colours[offset % 5 - 1])
+        }
+        else -> throw IllegalArgumentException("$code is not a valid card code")
+    }
+}
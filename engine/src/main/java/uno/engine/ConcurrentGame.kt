@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine
+
+import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
+import uno.engine.engineExceptions.MissingColourForWildCardException
+import uno.engine.objects.Bot
+import uno.engine.objects.Card
+import uno.engine.objects.Player
+import java.util.concurrent.CompletableFuture
+
+/**
+ * A thread safe [UnoGame] for games which are read far more often than they
+ * are played.
+ *
+ * Moves are serialized and, after each valid one, an immutable version of the
+ * game's state is published through a volatile reference. Reads are served by
+ * the latest version without ever taking a lock, so they never wait on a
+ * move being made nor delay one. A move refused by the game publishes
+ * nothing; if it reshuffled the table into the deck, [deckTop] shows it once
+ * the next move is made.
+ *
+ * Publishing isn't free: every move takes a [GameSnapshot] of the game and
+ * restores a [Game] from it to serve reads, allocating a copy of the whole
+ * deck, table and hands. This pays off when reads outnumber moves, as the
+ * wrapper is meant for, but makes a move cost far more than on a plain
+ * [Game].
+ *
+ * Each read method looks at the version current at the time of the call. Use
+ * [read] to get several values from the same version.
+ *
+ * @constructor wraps the given `game`, which must not be used directly
+ * afterwards
+ * @author Fábio Furtado
+ */
+class ConcurrentGame(private val game: Game) : UnoGame {
+
+    @Volatile
+    private var current = Version(0, game.snapshot())
+
+    /**
+     * Number of moves made since this instance was created.
+     */
+    val version: Long
+        get() = current.number
+
+    /**
+     * Returns the latest published state.
+     */
+    fun snapshot() = current.snapshot
+
+    /**
+     * Calls `reader` with a read only view of the latest version and returns
+     * its result. Trying to make moves through the view throws an
+     * [IllegalStateException].
+     */
+    fun <T> read(reader: (UnoGame) -> T): T = reader(current.view)
+
+    override val playerInTurn: Player
+        get() = current.view.playerInTurn
+
+    override val previousPlayer: Player
+        get() = current.view.previousPlayer
+
+    override val winner: Player?
+        get() = current.view.winner
+
+    override val deckTop: Card
+        get() = current.view.deckTop
+
+    override val tableTop: Card
+        get() = current.view.tableTop
+
+    override val numberOfPlayers: Int
+        get() = current.view.numberOfPlayers
+
+    override val isOver: Boolean
+        get() = current.view.isOver
+
+    @Suppress("DEPRECATION")
+    override val lastPickedColour: CardColour
+        get() = current.view.lastPickedColour
+
+    override fun getPlayer(index: Int) = current.view.getPlayer(index)
+
+    override fun getPlayer(id: String?) = current.view.getPlayer(id)
+
+    override fun getPlayers() = current.view.getPlayers()
+
+    override fun getIndex(id: String) = current.view.getIndex(id)
+
+    override fun isCardValid(card: Card) = current.view.isCardValid(card)
+
+    /**
+     * @see UnoGame.executeMove
+     */
+    @Throws(CardIndexOutOfHandBoundsException::class,
+            MissingColourForWildCardException::class)
+    override fun executeMove(command: GameCommand): Int = synchronized(game) {
+        val result = game.executeMove(command)
+        if (result == 0) publish()
+        result
+    }
+
+    /**
+     * @see UnoGame.goBot
+     */
+    override fun goBot(): GameCommand = synchronized(game) {
+        val move = game.goBot()
+        publish()
+        move
+    }
+
+    /**
+     * The bot decides based on the latest version and its move is executed
+     * on the scheduler's thread. The future fails with an
+     * [IllegalStateException] if another move was made meanwhile.
+     *
+     * @see UnoGame.goBotAsync
+     */
+    override fun goBotAsync(): CompletableFuture<GameCommand> {
+        val version = current
+        val bot = version.view.playerInTurn as? Bot ?: throw IllegalStateException()
+        return BotScheduler.default
+            .submit(this, BotScheduler.Priority.of(version.view), bot, version.view)
+            .thenApply { move ->
+                synchronized(game) {
+                    if (current !== version)
+                        throw IllegalStateException("A move was made while the bot decided")
+                    executeMove(move)
+                }
+                move
+            }
+    }
+
+    /**
+     * Returns an independent copy of the latest version.
+     *
+     * @see UnoGame.clone
+     */
+    override fun clone(): UnoGame = Game.restore(current.snapshot)
+
+    /**
+     * Publishes the wrapped game's state. Called holding the lock, after every
+     * move the game accepted.
+     */
+    private fun publish() {
+        current = Version(current.number + 1, game.snapshot())
+    }
+
+    /**
+     * An immutable state of the game, read through a [Game] restored from it
+     * which nothing but the view ever touches.
+     */
+    private class Version(val number: Long, val snapshot: GameSnapshot) {
+
+        val view: UnoGame = ReadOnlyGame(Game.restore(snapshot))
+    }
+
+    /**
+     * Exposes the queries of a game while refusing moves.
+     */
+    private class ReadOnlyGame(private val game: Game) : UnoGame by game {
+
+        override fun executeMove(command: GameCommand): Int =
+            throw IllegalStateException("This is a read only view of the game")
+
+        override fun goBot(): GameCommand =
+            throw IllegalStateException("This is a read only view of the game")
+
+        override fun goBotAsync(): CompletableFuture<GameCommand> =
+            throw IllegalStateException("This is a read only view of the game")
+
+        override fun clone(): UnoGame = Game.restore(game.snapshot())
+    }
+}
@@ -26,6 +26,7 @@ import uno.util.Stack;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 
 /**
@@ -93,13 +94,26 @@ final class DeckGenerator {
      * @return deck with shuffled cards
      */
     public static Stack<Card> next() {
-        Stack<Card> deck = new Stack<>();
+        return next(null);
+    }
+
+    /**
+     * Returns a new deck shuffled with the given source of randomness, so the
+     * same seed always gives the same deck.
+     *
+     * @param random source of randomness, a default one if null
+     * @return deck with shuffled cards
+     */
+    public static Stack<Card> next(Random random) {
+        Stack<Card> deck = new Stack<>(DECK_SIZE);
         List<Card> deckList = new ArrayList<>(DECK_SIZE);
         addWilds(deckList);
         addNumerals(deckList);
         addZeros(deckList);
         addSpecials(deckList);
-        Collections.shuffle(deckList);
+        if (random == null)
+            Collections.shuffle(deckList);
+        else Collections.shuffle(deckList, random);
         for (Card card : deckList)
             deck.push(card);
         return deck;
@@ -20,9 +20,17 @@ package uno.engine
 import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
 import uno.engine.engineExceptions.GameRulesException
 import uno.engine.engineExceptions.MissingColourForWildCardException
+import uno.engine.events.BotTurnEvent
+import uno.engine.events.DealEvent
+import uno.engine.events.MoveEvent
+import uno.engine.events.Recording
+import uno.engine.events.ReshuffleEvent
 import uno.engine.objects.*
 import uno.util.Stack
+import uno.util.StatefulRandom
 import java.util.*
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.atomic.AtomicLong
 import kotlin.collections.ArrayList
 import kotlin.random.Random
 
@@ -33,7 +41,8 @@ import kotlin.random.Random
  */
 class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
                                _table: Stack<Card>, _turn: Int, _previous: Int,
-                               _direction: Int, _winner: Player?) : UnoGame {
+                               _direction: Int, _winner: Player?,
+                               _random: StatefulRandom) : UnoGame {
 
     /**
      * All the cards on the deck. The deck is where the players draw new cards.
@@ -73,6 +82,37 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
      */
     private val players = _players
 
+    /**
+     * Source of randomness for reshuffles. Its state is part of the game state
+     * so a restored game keeps reshuffling the same way.
+     */
+    private val random = _random
+
+    /**
+     * Moves made since this instance was created, for [GameMetrics.gameLength].
+     */
+    private var numberOfMoves = 0
+
+    /**
+     * Number of this game within the process, reported in flight recorder
+     * events.
+     */
+    private val gameId = nextGameId.incrementAndGet()
+
+    /**
+     * Type of the last move, as reported in flight recorder events.
+     */
+    private var lastMoveType = "draw"
+
+    /**
+     * Whether this game is played out to look ahead rather than for real, in
+     * which case it's left out of the metrics and flight recorder events.
+     *
+     * @see Factory.simulate
+     */
+    var isSimulation = false
+        private set
+
     override var winner: Player? = _winner
         private set
         get() = field?.clone()
@@ -109,6 +149,8 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
      * card on the table.
      */
     private fun distributeAndFlip() {
+        val event = if (Recording.isActive()) DealEvent() else null
+        event?.begin()
         for (player in players) {
             var i = 0
             while (i < startingCards) {
@@ -124,13 +166,19 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
         table.push(deck.pop())
         for (card in aux)
             deck.push(card)
+        if (event != null && event.shouldCommit()) {
+            event.gameId = gameId
+            event.players = players.size
+            event.handSize = startingCards
+            event.commit()
+        }
     }
 
     /**
      * @see UnoGame#getPlayer(int)
      */
     override fun getPlayer(index: Int) =
-        if (index < 0 || index > numberOfPlayers)
+        if (index >= 0 && index < numberOfPlayers)
             Optional.of(players[index].clone())
         else Optional.empty()
 
@@ -204,7 +252,10 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
     @Throws(CardIndexOutOfHandBoundsException::class,
             MissingColourForWildCardException::class)
     override fun executeMove(command: GameCommand): Int {
+        val event = if (!isSimulation && Recording.isActive()) MoveEvent() else null
+        event?.begin()
         return if (!isOver) {
+            val player = turn
             checkMoveValidity(command)
             makeSureDeckDoesNotGetEmpty()
             var returnValue = 1
@@ -213,8 +264,20 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
                 returnValue = 0
             } else if (command.option == 1) {
                 returnValue = play(command)
-                if (players[previous].hand.isEmpty())
+                if (players[previous].hand.isEmpty()) {
                     winner = players[previous]
+                    if (!isSimulation) {
+                        GameMetrics.gamesFinished.increment()
+                        GameMetrics.gameLength.record(numberOfMoves.toLong())
+                    }
+                }
+            }
+            if (event != null && event.shouldCommit()) {
+                event.gameId = gameId
+                event.player = player
+                event.moveType = lastMoveType
+                event.handSize = players[player].hand.size
+                event.commit()
             }
             returnValue
         } else throw IllegalStateException("This game is already over!")
@@ -249,25 +312,35 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
      */
     private fun makeSureDeckDoesNotGetEmpty() {
         if (deck.size() < 4) {
-            val lastInDeck = Stack<Card>()
-            val tableList = ArrayList<Card>()
+            val event = if (!isSimulation && Recording.isActive()) ReshuffleEvent() else null
+            event?.begin()
+            if (!isSimulation) GameMetrics.reshuffles.increment()
+            // the table is shuffled and the cards left in the deck kept on
+            // top of it in a reused buffer, so reshuffling doesn't allocate
+            val buffer = reshuffleBuffer.get()
             val tableTop = table.pop()
-            while (!deck.isEmpty)
-                lastInDeck.push(deck.pop())
             while (!table.isEmpty)
-                tableList.add(table.pop())
-            tableList.shuffle()
+                buffer.add(table.pop())
+            buffer.shuffle(random)
+            val shuffled = buffer.size
+            while (!deck.isEmpty)
+                buffer.add(deck.pop())
 
             // replace wild cards with colour with wild cards with empty colour
-            val tableListWithNeutralWilds = tableList.map {
-                if (it is WildCard) WildCard.of(it.symbol) else it
+            for (i in 0 until shuffled) {
+                val card = buffer[i]
+                deck.push(if (card is WildCard) WildCard.of(card.symbol) else card)
             }
-
-            for (card in tableListWithNeutralWilds)
-                deck.push(card)
-            for (card in lastInDeck)
-                deck.push(card)
+            for (i in buffer.size - 1 downTo shuffled)
+                deck.push(buffer[i])
+            buffer.clear()
             table.push(tableTop)
+            if (event != null && event.shouldCommit()) {
+                event.gameId = gameId
+                event.player = turn
+                event.cards = shuffled
+                event.commit()
+            }
         }
     }
 
@@ -275,6 +348,9 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
         players[turn].addToHand(deck.pop())
         updatePrevious()
         move()
+        numberOfMoves++
+        lastMoveType = "draw"
+        if (!isSimulation) GameMetrics.draws.increment()
     }
 
     private fun play(command: GameCommand): Int {
@@ -288,12 +364,19 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
                 // Numeric card
                 else -> playNumeric(command)
             }
+            numberOfMoves++
             0
         }
-        else 1
+        else {
+            lastMoveType = "invalid"
+            if (!isSimulation) GameMetrics.invalidMoves.increment()
+            1
+        }
     }
 
     private fun playSpecial(command: GameCommand) {
+        lastMoveType = "special"
+        if (!isSimulation) GameMetrics.specialPlays.increment()
         table.push(players[turn].takeFromHand(command.index))
         when ((table.peek() as Symbolic).symbol) {
             SpecialCardSymbol.DRAW_2 -> {
@@ -319,7 +402,12 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
      */
     private fun playWild(command: GameCommand) {
         lastPickedColour = command.colour!!
-        table.push(((playerInTurn.takeFromHand(command.index)) as WildCard)
+        lastMoveType = "wild"
+        if (!isSimulation) {
+            GameMetrics.wildPlays.increment()
+            GameMetrics.wildColourChosen(lastPickedColour)
+        }
+        table.push(((players[turn].takeFromHand(command.index)) as WildCard)
             .withColour(command.colour))
 
         when ((table.peek() as Symbolic).symbol) {
@@ -334,6 +422,8 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
     }
 
     private fun playNumeric(command: GameCommand) {
+        lastMoveType = "numeric"
+        if (!isSimulation) GameMetrics.numericPlays.increment()
         table.push(players[turn].takeFromHand(command.index))
         move()
     }
@@ -343,13 +433,46 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
      */
     override fun goBot(): GameCommand {
         if (players[turn] is Bot) {
-            val move = (players[turn] as Bot).makeMove(this)
+            val event = if (!isSimulation && Recording.isActive()) BotTurnEvent() else null
+            event?.begin()
+            val player = turn
+            val bot = players[turn] as Bot
+            val move = if (isSimulation) bot.makeMove(this)
+                       else BotAccounting.makeMove(bot, this)
             executeMove(move)
+            if (event != null && event.shouldCommit()) {
+                event.gameId = gameId
+                event.player = player
+                event.bot = players[player].javaClass
+                event.moveType = lastMoveType
+                event.handSize = players[player].hand.size
+                event.commit()
+            }
             return move
         }
         throw IllegalStateException()
     }
 
+    /**
+     * The bot deciding is the one of the copy it is given, so nothing the
+     * scheduler runs touches this game's players. The future completes, and
+     * the move is executed, on one of the scheduler's threads, since this
+     * game owns none.
+     *
+     * @see UnoGame.goBotAsync
+     */
+    override fun goBotAsync(): CompletableFuture<GameCommand> {
+        if (players[turn] !is Bot) throw IllegalStateException()
+        val priority = if (players.all { it is Bot }) BotScheduler.Priority.BACKGROUND
+                       else BotScheduler.Priority.INTERACTIVE
+        val copy = restore(snapshot())
+        return BotScheduler.default.submit(this, priority, copy.players[copy.turn] as Bot, copy)
+            .thenApply { move ->
+                executeMove(move)
+                move
+            }
+    }
+
     /**
      * Moves the turn as many times as requested.
      *
@@ -389,11 +512,32 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
     /**
      * @see UnoGame#clone()
      */
-    override fun clone() = createGame(
-            players.copyOf(),
-            deck.clone(),
-            table.clone(),
-            turn, previous, direction)
+    override fun clone(): Game {
+        val clone = createGame(
+                players.copyOf(),
+                deck.clone(),
+                table.clone(),
+                turn, previous, direction,
+                StatefulRandom.fromState(random.state))
+        clone.isSimulation = isSimulation
+        return clone
+    }
+
+    /**
+     * Returns an immutable copy of this game's full state.
+     *
+     * @see Factory.restore
+     */
+    fun snapshot(): GameSnapshot {
+        val playerSnapshots = players.map {
+            GameSnapshot.PlayerSnapshot(it.id, it is Bot, it.hand.toList())
+        }
+        return GameSnapshot(
+                playerSnapshots,
+                deck.toArray().map { it as Card },
+                table.toArray().map { it as Card },
+                turn, previous, direction, lastPickedColour, random.state)
+    }
 
     /**
      * Creates instances of [Game] class.
@@ -405,6 +549,20 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
          */
         private const val BOT_PLAYER_NAME_PREFIX = "Bot"
 
+        private val nextGameId = AtomicLong()
+
+        /**
+         * Number of cards in a deck, which no hand nor stack can outgrow.
+         */
+        private const val DECK_SIZE = 108
+
+        /**
+         * Scratch space for reshuffles, one per thread as games may be played
+         * on any thread.
+         */
+        private val reshuffleBuffer =
+            ThreadLocal.withInitial { ArrayList<Card>(DECK_SIZE) }
+
         /**
          * Minimal number of players for each game.
          */
@@ -427,19 +585,46 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
          * @return a new `Game` instance
          */
         fun createGame(numberOfBots: Int, vararg humanPlayersNames: String) : Game {
+            val players = makePlayers(numberOfBots, humanPlayersNames) { id ->
+                BotPlayer(id, DECK_SIZE)
+            }
+            return createGame(players, null)
+        }
+
+        /**
+         * Creates a new Game like [createGame], except that dealing, picking
+         * who starts, reshuffling and the bots' choices between equally good
+         * colours all derive from `seed`. Playing the same moves on games with
+         * the same seed always gives the same result.
+         *
+         * @param seed              seed of the game's randomness
+         * @param numberOfBots      number of bot's to add
+         * @param humanPlayersNames array with the name of each human player
+         * @return a new `Game` instance
+         */
+        fun createSeededGame(seed: Long, numberOfBots: Int,
+                             vararg humanPlayersNames: String) : Game {
+            val bots = Random(seed)
+            val players = makePlayers(numberOfBots, humanPlayersNames) { id ->
+                BotPlayer(id, DECK_SIZE, bots)
+            }
+            return createGame(players, StatefulRandom(seed))
+        }
+
+        private fun makePlayers(numberOfBots: Int, humanPlayersNames: Array<out String>,
+                                makeBot: (String) -> Player): Array<Player> {
             val numberOfPlayers = numberOfBots + humanPlayersNames.size
             checkIfNumberOfPlayersIsLegal(numberOfPlayers)
             var botsMade = 0
             var humansMade = 0
 
-            fun makePlayer(index: Int): Player {
+            fun makePlayer(): Player {
                 return if (botsMade++ < numberOfBots)
-                    BotPlayer(BOT_PLAYER_NAME_PREFIX.plus(botsMade))
-                else HumanPlayer(humanPlayersNames[humansMade++])
+                    makeBot(BOT_PLAYER_NAME_PREFIX.plus(botsMade))
+                else HumanPlayer(humanPlayersNames[humansMade++], DECK_SIZE)
             }
 
-            val players = Array(numberOfPlayers, ::makePlayer)
-            return createGame(players)
+            return Array(numberOfPlayers) { makePlayer() }
         }
 
         /**
@@ -466,20 +651,72 @@ class Game private constructor(_players: Array<Player>, _deck: Stack<Card>,
                                table: Stack<Card>,
                                turn: Int,
                                previous: Int,
-                               direction: Int) : Game {
+                               direction: Int,
+                               random: StatefulRandom) : Game {
 
             var winner: Player? = null
             for (player in players) {
                 if (player.hand.isEmpty()) winner = player
             }
-            return Game(players, deck, table, turn, previous, direction, winner)
+            return Game(players, deck, table, turn, previous, direction, winner,
+                    random)
+        }
+
+        /**
+         * Creates a game which resumes from the given `snapshot`.
+         *
+         * Bots are restored as [BotPlayer]s.
+         *
+         * @param snapshot state previously returned by [Game.snapshot]
+         * @return a new `Game` instance in the same state as the snapshot
+         */
+        fun restore(snapshot: GameSnapshot): Game {
+            val players = Array(snapshot.players.size) {
+                val playerSnapshot = snapshot.players[it]
+                if (playerSnapshot.isBot) {
+                    val bot = BotPlayer(playerSnapshot.id)
+                    for (card in playerSnapshot.hand) bot.addToHand(card)
+                    bot
+                } else HumanPlayer(playerSnapshot.id, playerSnapshot.hand)
+            }
+            val deck = Stack<Card>(DECK_SIZE)
+            for (card in snapshot.deck) deck.push(card)
+            val table = Stack<Card>(DECK_SIZE)
+            for (card in snapshot.table) table.push(card)
+            val game = createGame(players, deck, table, snapshot.turn,
+                    snapshot.previous, snapshot.direction,
+                    StatefulRandom.fromState(snapshot.randomState))
+            game.lastPickedColour = snapshot.lastPickedColour
+            return game
         }
 
-        private fun createGame(players: Array<Player>): Game {
+        /**
+         * Creates a game like [restore], marked as a simulation: its moves,
+         * bot decisions and end are left out of [GameMetrics], bot accounting
+         * and flight recorder events, so looking ahead doesn't show up as
+         * games being played.
+         *
+         * @param snapshot state previously returned by [Game.snapshot]
+         * @return a new `Game` instance in the same state as the snapshot
+         */
+        fun simulate(snapshot: GameSnapshot): Game {
+            val game = restore(snapshot)
+            game.isSimulation = true
+            return game
+        }
+
+        /**
+         * Deals a new game to the given players, from the given source of
+         * randomness or a new one if null.
+         */
+        private fun createGame(players: Array<Player>, random: StatefulRandom?): Game {
             checkIfNumberOfPlayersIsLegal(players.size)
-            val game = Game(players, DeckGenerator.next(),
-                    Stack(), Random.nextInt(0, players.size), 0, 1, null)
+            val deck = DeckGenerator.next(random)
+            val turn = random?.nextInt(players.size) ?: Random.nextInt(0, players.size)
+            val game = Game(players, deck, Stack(DECK_SIZE), turn, 0, 1, null,
+                    random ?: StatefulRandom())
             game.distributeAndFlip()
+            GameMetrics.gamesStarted.increment()
             return game
         }
 
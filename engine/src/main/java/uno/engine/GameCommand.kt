@@ -31,13 +31,33 @@ class GameCommand private constructor(val option: Int, val index: Int,
 
     companion object {
 
-        private val pool = HashMap<GameCommand, GameCommand>()
+        /**
+         * Play commands for indices below this are interned, which covers any
+         * hand a game with a single deck can have.
+         */
+        private const val INTERNED_INDICES = 128
+
+        /** Colourless plus one per colour */
+        private val COLOUR_OPTIONS = CardColour.values().size + 1
+
+        private val draw = GameCommand(0, -1, null)
+
+        /**
+         * Interned play commands, indexed by card index and then by colour (0
+         * for none, ordinal + 1 otherwise), so that [of] never allocates.
+         * Never written once built, so every thread can share it.
+         */
+        private val pool = Array(INTERNED_INDICES * COLOUR_OPTIONS) {
+            val colour = it % COLOUR_OPTIONS
+            GameCommand(1, it / COLOUR_OPTIONS,
+                        if (colour == 0) null else CardColour.values()[colour - 1])
+        }
 
         /**
          * Creates a new instance for a command to draw a card.
          */
         @JvmStatic
-        fun of() = intern(GameCommand(0, -1, null))
+        fun of() = draw
 
         /**
          * Creates a new instance for a command to play a non wild from the given
@@ -46,27 +66,44 @@ class GameCommand private constructor(val option: Int, val index: Int,
          * @param index index of the card to play
          */
         @JvmStatic
-        fun of(index: Int) = intern(GameCommand(1, index, null))
+        fun of(index: Int) = of(index, null)
 
         /**
          * Creates a new instance for a command to play a wild card or a non-wild
          * if {@code colour == null}.
          *
+         * Indices too large to be interned still return an equal, if not
+         * identical, instance.
+         *
          * @param index  index of the card to play
          * @param colour colour to choose for the wild card
          */
         @JvmStatic
-        fun of(index: Int, colour: CardColour?) = intern(GameCommand(1, index, colour))
+        fun of(index: Int, colour: CardColour?): GameCommand {
+            if (index < 0 || index >= INTERNED_INDICES)
+                return GameCommand(1, index, colour)
+            return pool[index * COLOUR_OPTIONS +
+                        (if (colour == null) 0 else colour.ordinal + 1)]
+        }
 
         /**
-         * Makes the internment
+         * Returns the command packed in the given `code`.
+         *
+         * @param code value previously returned by [GameCommand.code]
+         * @throws IllegalArgumentException if the code does not hold a valid
+         * command
          */
-        private fun intern(candidate: GameCommand): GameCommand {
-            return if (pool.containsKey(candidate)) pool[candidate]!!
-            else {
-                pool[candidate] = candidate
-                candidate
-            }
+        @JvmStatic
+        fun ofCode(code: Int): GameCommand {
+            if (code < 0)
+                throw IllegalArgumentException("$code is not a valid command code")
+            if (code and 1 == 0) return of()
+            val colourCode = (code shr 1) and 7
+            if (colourCode >= COLOUR_OPTIONS)
+                throw IllegalArgumentException("$code is not a valid command code")
+            val colour = if (colourCode == 0) null
+                         else CardColour.values()[colourCode - 1]
+            return of(code shr 4, colour)
         }
     }
 
@@ -77,6 +114,17 @@ class GameCommand private constructor(val option: Int, val index: Int,
         }
     }
 
+    /**
+     * This command packed into a single non negative int.
+     *
+     * Bit 0 holds the option, bits 1 to 3 the colour (0 for none, ordinal + 1
+     * otherwise) and the remaining bits the index. Drawing is always 0.
+     */
+    val code: Int
+        get() = if (option == 0) 0
+                else 1 or ((if (colour == null) 0 else colour.ordinal + 1) shl 1) or
+                        (index shl 4)
+
     override fun equals(other: Any?): Boolean {
         return when {
             this === other -> true
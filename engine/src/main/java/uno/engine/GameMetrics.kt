@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine
+
+import uno.util.MetricsRegistry
+
+/**
+ * The engine's metrics, kept in [MetricsRegistry.getDefault] under the
+ * `engine.` prefix.
+ *
+ * Each metric is looked up once, so recording one is a single `LongAdder` or
+ * histogram update.
+ *
+ * @author Fábio Furtado
+ */
+object GameMetrics {
+
+    private val registry = MetricsRegistry.getDefault()
+
+    /**
+     * Cards drawn as a move.
+     */
+    @JvmField
+    val draws = registry.counter("engine.moves.draw")!!
+
+    /**
+     * Numeric cards played.
+     */
+    @JvmField
+    val numericPlays = registry.counter("engine.moves.numeric")!!
+
+    /**
+     * Special cards played.
+     */
+    @JvmField
+    val specialPlays = registry.counter("engine.moves.special")!!
+
+    /**
+     * Wild cards played.
+     */
+    @JvmField
+    val wildPlays = registry.counter("engine.moves.wild")!!
+
+    /**
+     * Moves refused for playing a card which doesn't match the table.
+     */
+    @JvmField
+    val invalidMoves = registry.counter("engine.moves.invalid")!!
+
+    /**
+     * Times the table was shuffled back into the deck.
+     */
+    @JvmField
+    val reshuffles = registry.counter("engine.reshuffles")!!
+
+    /**
+     * Games created.
+     */
+    @JvmField
+    val gamesStarted = registry.counter("engine.games.started")!!
+
+    /**
+     * Games won.
+     */
+    @JvmField
+    val gamesFinished = registry.counter("engine.games.finished")!!
+
+    /**
+     * Number of moves made in each finished game.
+     */
+    @JvmField
+    val gameLength = registry.histogram("engine.games.length")!!
+
+    /**
+     * Wall time of bots' decisions, in nanoseconds.
+     */
+    @JvmField
+    val botDecisions = registry.histogram("engine.bots.decision")!!
+
+    private val colourChoices = Array(CardColour.values().size) {
+        registry.counter("engine.wild.colour." + CardColour.values()[it].name.toLowerCase())
+    }
+
+    init {
+        // every move made, which readers of the counters file turn into moves per second
+        registry.gauge("engine.moves.total") {
+            draws.sum() + numericPlays.sum() + specialPlays.sum() + wildPlays.sum()
+        }
+    }
+
+    /**
+     * Counts a wild card played with the given colour.
+     */
+    @JvmStatic
+    fun wildColourChosen(colour: CardColour) = colourChoices[colour.ordinal].increment()
+
+    /**
+     * Returns a text snapshot of every metric in the default registry.
+     */
+    @JvmStatic
+    fun dump(): String = registry.dump()
+}
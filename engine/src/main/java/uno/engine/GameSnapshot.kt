@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine
+
+import uno.engine.objects.Card
+
+/**
+ * Immutable copy of the full state of a [Game], deck order included. Use
+ * [Game.snapshot] to take one and [Game.restore] to resume a game from it.
+ *
+ * The deck and table lists are ordered from the bottom to the top of the
+ * respective stack.
+ *
+ * @author Fábio Furtado
+ */
+class GameSnapshot(
+    val players: List<PlayerSnapshot>,
+    val deck: List<Card>,
+    val table: List<Card>,
+    val turn: Int,
+    val previous: Int,
+    val direction: Int,
+    val lastPickedColour: CardColour,
+    val randomState: Long
+) {
+
+    /**
+     * Immutable copy of a single player.
+     *
+     * @property isBot true if the player is controlled by the engine
+     */
+    class PlayerSnapshot(val id: String, val isBot: Boolean, val hand: List<Card>)
+}
@@ -21,6 +21,7 @@ import uno.engine.engineExceptions.MissingColourForWildCardException
 import uno.engine.objects.Card
 import uno.engine.objects.Player
 import java.util.*
+import java.util.concurrent.CompletableFuture
 
 /**
  * A uno game abstraction. Use [Game.createGame]  the get instances.
@@ -144,6 +145,19 @@ interface UnoGame {
      */
     fun goBot(): GameCommand
 
+    /**
+     * Like [goBot], but the bot decides on [BotScheduler.default], based on a
+     * copy of this game, and its move is executed when the future completes.
+     *
+     * No other moves may be made until then. Implementations which own a
+     * thread execute the move on it, others on the scheduler's thread.
+     *
+     * @return future with the bot's move, or a cheaper one if the bot could
+     * not decide in time, completed exceptionally if the bot failed
+     * @throws IllegalStateException if the player in turn is not a bot
+     */
+    fun goBotAsync(): CompletableFuture<GameCommand>
+
     /**
      * Returns a copy of this instance.
      *
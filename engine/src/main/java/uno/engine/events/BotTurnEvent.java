@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for a bot's turn played through
+ * {@link uno.engine.UnoGame#goBot()}, from the decision to the execution of
+ * the move.
+ * <p>Disabled by default. Enable {@value #NAME} in the recording settings to
+ * get it.
+ *
+ * @author Fábio Furtado
+ */
+@Name(BotTurnEvent.NAME)
+@Label("Bot Turn")
+@Category({"Uno", "Engine"})
+@Description("A bot deciding and making its move")
+@Enabled(false)
+public final class BotTurnEvent extends Event {
+
+    public static final String NAME = "uno.BotTurn";
+
+    @Label("Game Id")
+    @Description("Number of the game within the process")
+    public long gameId;
+
+    @Label("Player")
+    @Description("Index of the bot")
+    public int player;
+
+    @Label("Bot")
+    @Description("Class of the bot")
+    public Class<?> bot;
+
+    @Label("Move Type")
+    @Description("draw, numeric, special, wild or invalid")
+    public String moveType;
+
+    @Label("Hand Size")
+    @Description("Cards in the bot's hand after the move")
+    public int handSize;
+}
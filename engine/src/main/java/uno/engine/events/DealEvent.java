@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for the cards being dealt and the first one flipped
+ * when a game starts.
+ * <p>Disabled by default. Enable {@value #NAME} in the recording settings to
+ * get it.
+ *
+ * @author Fábio Furtado
+ */
+@Name(DealEvent.NAME)
+@Label("Deal")
+@Category({"Uno", "Engine"})
+@Description("Cards dealt to the players of a new game")
+@Enabled(false)
+public final class DealEvent extends Event {
+
+    public static final String NAME = "uno.Deal";
+
+    @Label("Game Id")
+    @Description("Number of the game within the process")
+    public long gameId;
+
+    @Label("Players")
+    public int players;
+
+    @Label("Hand Size")
+    @Description("Cards dealt to each player")
+    public int handSize;
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for a move executed by a game, valid or not. Lasts as
+ * long as the move took to execute.
+ * <p>Disabled by default. Enable {@value #NAME} in the recording settings to
+ * get it.
+ *
+ * @author Fábio Furtado
+ */
+@Name(MoveEvent.NAME)
+@Label("Move")
+@Category({"Uno", "Engine"})
+@Description("A move executed by a game")
+@Enabled(false)
+public final class MoveEvent extends Event {
+
+    public static final String NAME = "uno.Move";
+
+    @Label("Game Id")
+    @Description("Number of the game within the process")
+    public long gameId;
+
+    @Label("Player")
+    @Description("Index of the player who made the move")
+    public int player;
+
+    @Label("Move Type")
+    @Description("draw, numeric, special, wild or invalid")
+    public String moveType;
+
+    @Label("Hand Size")
+    @Description("Cards in the player's hand after the move")
+    public int handSize;
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.events;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Tells whether the engine's events are worth creating.
+ * <p>Loading the first event class sets up Flight Recorder's metadata, which
+ * takes longer than starting up a short game. The engine only creates its
+ * events once Flight Recorder is running in the process, having been started
+ * with {@code -XX:StartFlightRecording} or later by {@code jcmd JFR.start}.
+ *
+ * @author Fábio Furtado
+ */
+public final class Recording {
+
+    /**
+     * Not to be instantiated
+     */
+    private Recording() {}
+
+    /**
+     * Checks if Flight Recorder has been started, so events can be recorded.
+     *
+     * @return true if events should be created, false if they'd be thrown away
+     */
+    public static boolean isActive() {
+        return FlightRecorder.isInitialized();
+    }
+}
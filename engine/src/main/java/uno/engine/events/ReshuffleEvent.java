@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.events;
+
+import jdk.jfr.*;
+
+/**
+ * Flight Recorder event for the table being shuffled back into a deck which
+ * was running out of cards.
+ * <p>Disabled by default. Enable {@value #NAME} in the recording settings to
+ * get it.
+ *
+ * @author Fábio Furtado
+ */
+@Name(ReshuffleEvent.NAME)
+@Label("Reshuffle")
+@Category({"Uno", "Engine"})
+@Description("The table shuffled back into the deck")
+@Enabled(false)
+public final class ReshuffleEvent extends Event {
+
+    public static final String NAME = "uno.Reshuffle";
+
+    @Label("Game Id")
+    @Description("Number of the game within the process")
+    public long gameId;
+
+    @Label("Player")
+    @Description("Index of the player in turn")
+    public int player;
+
+    @Label("Cards")
+    @Description("Cards moved from the table to the deck")
+    public int cards;
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.objects
+
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+import java.util.concurrent.TimeUnit
+
+/**
+ * A bot which keeps improving its decision for as long as it's allowed to, and
+ * can be stopped at any time with the best move found so far.
+ *
+ * @author Fábio Furtado
+ */
+interface AnytimeBot : Bot {
+
+    /**
+     * Searches for the best move in the given game, offering every move better
+     * than the previous ones to `best`.
+     *
+     * It should return by the `deadline` and must return as soon as possible
+     * if the thread is interrupted. Whatever was offered last is played.
+     *
+     * @param game     game class to which to bot will base it's decision on
+     * @param deadline time, as given by [System.nanoTime], by which the move
+     *                 is needed
+     * @param best     where to keep the best move so far
+     */
+    fun search(game: UnoGame, deadline: Long, best: BestMove)
+
+    /**
+     * Searches for [DEFAULT_BUDGET_MILLIS], falling back to
+     * [BotPlayer.firstValidMove] if nothing was found.
+     *
+     * @see Bot.makeMove
+     */
+    override fun makeMove(game: UnoGame): GameCommand {
+        val best = BestMove()
+        search(game, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEFAULT_BUDGET_MILLIS), best)
+        return best.move ?: BotPlayer.firstValidMove(game.playerInTurn.hand, game)
+    }
+
+    /**
+     * The best move an [AnytimeBot] found so far. Safe to read from any
+     * thread.
+     */
+    class BestMove {
+
+        /**
+         * The move, null if none was offered yet.
+         */
+        @Volatile
+        var move: GameCommand? = null
+            private set
+
+        /**
+         * Replaces the move.
+         */
+        fun offer(move: GameCommand) {
+            this.move = move
+        }
+    }
+
+    companion object {
+
+        /**
+         * Time [makeMove] searches for.
+         */
+        const val DEFAULT_BUDGET_MILLIS = 200L
+    }
+}
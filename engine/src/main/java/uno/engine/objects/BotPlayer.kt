@@ -28,8 +28,9 @@ import kotlin.random.Random
  * @constructor creates an instance with the given id and starting hand
  * @author Fábio Furtado
  */
-class BotPlayer private constructor(_id: String,
-                                    _hand: List<Card>) : Player, Bot {
+class BotPlayer private constructor(_id: String, _hand: List<Card>,
+                                    _handCapacity: Int,
+                                    private val random: Random) : Player, Bot {
 
     /**
      * @see Player.id
@@ -39,14 +40,27 @@ class BotPlayer private constructor(_id: String,
     /**
      * An ADT with the cards on the player's hand.
      */
-    override val hand: MutableList<Card> = _hand.toMutableList()
+    override val hand: MutableList<Card> =
+        if (_handCapacity > _hand.size) ArrayList<Card>(_handCapacity).apply { addAll(_hand) }
+        else _hand.toMutableList()
 
     /**
      * Creates a new instance.
      *
      * @param id a String to identify this player
      */
-    constructor(id: String): this(id, ArrayList())
+    constructor(id: String): this(id, ArrayList(), 0, Random.Default)
+
+    /**
+     * Creates a new instance whose hand holds `handCapacity` cards before it
+     * has to grow, so adding to it doesn't allocate.
+     *
+     * @param id a String to identify this player
+     * @param handCapacity number of cards the hand is sized for
+     * @param random source of randomness to break ties between colours
+     */
+    internal constructor(id: String, handCapacity: Int, random: Random = Random.Default):
+            this(id, ArrayList(), handCapacity, random)
 
     /**
      * @see Player.addToHand
@@ -67,48 +81,7 @@ class BotPlayer private constructor(_id: String,
     /**
      * @see Bot.makeMove
      */
-    override fun makeMove(game: UnoGame): GameCommand {
-        val index: Int
-        var colour: CardColour? = null
-        for (i in hand.indices) {
-            if (game.isCardValid(hand[i])) {
-                index = i
-                if (hand[i].type === CardType.WILD) colour = chooseColour()
-                return GameCommand.of(index, colour)
-            }
-        }
-        return GameCommand.of()
-    }
-
-    private fun chooseColour(): CardColour {
-        var bluesInHand = 0
-        var redsInHand = 0
-        var greensInHand = 0
-        var yellowsInHand = 0
-        for (card in hand) {
-            if (card is Colourful) {
-                when ((card as Colourful).colour) {
-                    CardColour.BLUE -> bluesInHand++
-                    CardColour.RED -> redsInHand++
-                    CardColour.GREEN -> greensInHand++
-                    CardColour.YELLOW -> yellowsInHand++
-                }
-            }
-        }
-
-        val arr = intArrayOf(bluesInHand, redsInHand, greensInHand, yellowsInHand)
-        var biggerIndex = Random.nextInt(4)
-        for ((index, value) in arr.withIndex()) {
-            if (value > arr[biggerIndex])
-                biggerIndex = index
-        }
-        return when (biggerIndex) {
-            0 -> CardColour.BLUE
-            1 -> CardColour.RED
-            2 -> CardColour.GREEN
-            else -> CardColour.YELLOW
-        }
-    }
+    override fun makeMove(game: UnoGame) = firstValidMove(hand, game, random)
 
     /**
      * @see Player.clone
@@ -116,7 +89,7 @@ class BotPlayer private constructor(_id: String,
     override fun clone(): Player {
         val handCopy: MutableList<Card> = ArrayList(hand.size)
         for (card in hand) handCopy.add(card)
-        return BotPlayer(id, handCopy)
+        return BotPlayer(id, handCopy, 0, random)
     }
 
     /**
@@ -135,4 +108,79 @@ class BotPlayer private constructor(_id: String,
      * @see Object.hashCode
      */
     override fun hashCode() = Player.hashCode(this)
+
+    companion object {
+
+        /**
+         * The policy of this bot: plays the first valid card in the `hand`,
+         * picking the colour it has the most cards of if it's a wild one, or
+         * draws if there's none. It's cheap enough to be used whenever
+         * another bot can't decide in time.
+         *
+         * @param hand hand of the player in turn
+         * @param game game to play
+         * @param random source of randomness to break ties between colours
+         * @return command with the decision
+         */
+        @JvmStatic
+        @JvmOverloads
+        fun firstValidMove(hand: List<Card>, game: UnoGame,
+                           random: Random = Random.Default): GameCommand {
+            val index: Int
+            var colour: CardColour? = null
+            for (i in hand.indices) {
+                if (game.isCardValid(hand[i])) {
+                    index = i
+                    if (hand[i].type === CardType.WILD) colour = chooseColour(hand, random)
+                    return GameCommand.of(index, colour)
+                }
+            }
+            return GameCommand.of()
+        }
+
+        private fun chooseColour(hand: List<Card>, random: Random): CardColour {
+            var bluesInHand = 0
+            var redsInHand = 0
+            var greensInHand = 0
+            var yellowsInHand = 0
+            for (i in hand.indices) {
+                val card = hand[i]
+                if (card is Colourful) {
+                    when ((card as Colourful).colour) {
+                        CardColour.BLUE -> bluesInHand++
+                        CardColour.RED -> redsInHand++
+                        CardColour.GREEN -> greensInHand++
+                        CardColour.YELLOW -> yellowsInHand++
+                    }
+                }
+            }
+
+            // ties go to a random colour, without boxing the counts in an array
+            var biggerIndex = random.nextInt(4)
+            var bigger = countOf(biggerIndex, bluesInHand, redsInHand,
+                                 greensInHand, yellowsInHand)
+            for (index in 0 until 4) {
+                val value = countOf(index, bluesInHand, redsInHand,
+                                    greensInHand, yellowsInHand)
+                if (value > bigger) {
+                    biggerIndex = index
+                    bigger = value
+                }
+            }
+            return when (biggerIndex) {
+                0 -> CardColour.BLUE
+                1 -> CardColour.RED
+                2 -> CardColour.GREEN
+                else -> CardColour.YELLOW
+            }
+        }
+
+        private fun countOf(index: Int, blues: Int, reds: Int, greens: Int,
+                            yellows: Int) = when (index) {
+            0 -> blues
+            1 -> reds
+            2 -> greens
+            else -> yellows
+        }
+    }
 }
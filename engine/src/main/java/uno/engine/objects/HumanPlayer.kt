@@ -22,7 +22,8 @@ package uno.engine.objects
  * @constructor creates an instance with the given `id` and starting `hand`
  * @author Fábio Furtado
  */
-class HumanPlayer(_id: String, _hand: List<Card>): Player {
+class HumanPlayer private constructor(_id: String, _hand: List<Card>,
+                                      _handCapacity: Int): Player {
 
     /**
      * @see Player.id
@@ -32,14 +33,34 @@ class HumanPlayer(_id: String, _hand: List<Card>): Player {
     /**
      * This player's cards
      */
-    override val hand: MutableList<Card> = _hand.toMutableList()
+    override val hand: MutableList<Card> =
+        if (_handCapacity > _hand.size) ArrayList<Card>(_handCapacity).apply { addAll(_hand) }
+        else _hand.toMutableList()
+
+    /**
+     * Creates a player with the given starting hand.
+     *
+     * @param id a String to identify this player
+     * @param hand cards the player starts with
+     */
+    constructor(id: String, hand: List<Card>): this(id, hand, 0)
 
     /**
      * Creates a player with an empty hand.
      *
      * @param id a String to identify this player
      */
-    constructor(id: String): this(id, ArrayList())
+    constructor(id: String): this(id, ArrayList(), 0)
+
+    /**
+     * Creates a player with an empty hand which holds `handCapacity` cards
+     * before it has to grow, so adding to it doesn't allocate.
+     *
+     * @param id a String to identify this player
+     * @param handCapacity number of cards the hand is sized for
+     */
+    internal constructor(id: String, handCapacity: Int):
+            this(id, ArrayList(), handCapacity)
 
     /**
      * @see Player.addToHand
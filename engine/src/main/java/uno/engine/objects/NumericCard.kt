@@ -28,7 +28,18 @@ class NumericCard private constructor(_colour: CardColour, _number: Int) :
                                                       Card, Numeric, Colourful {
 
     companion object {
-        private val pool = HashMap<NumericCard, NumericCard>()
+
+        private const val NUMBERS = Numeric.MAX_VALUE - Numeric.MIN_VALUE + 1
+
+        /**
+         * Every possible instance, indexed by colour ordinal and then number,
+         * so that [of] never allocates. Never written once built, so every
+         * thread can share it.
+         */
+        private val pool = Array(CardColour.values().size * NUMBERS) {
+            NumericCard(CardColour.values()[it / NUMBERS],
+                        it % NUMBERS + Numeric.MIN_VALUE)
+        }
 
         /**
          * Returns an instance
@@ -46,12 +57,7 @@ class NumericCard private constructor(_colour: CardColour, _number: Int) :
                         "A valid one must be no shorter than ${Numeric.MIN_VALUE}" +
                         "and no longer than ${Numeric.MAX_VALUE}")
 
-            val candidate = NumericCard(_colour, _number)
-            return if (pool.containsKey(candidate)) pool[candidate]!!
-            else {
-                pool[candidate] = candidate
-                candidate
-            }
+            return pool[_colour.ordinal * NUMBERS + _number - Numeric.MIN_VALUE]
         }
     }
 
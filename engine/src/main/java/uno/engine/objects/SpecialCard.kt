@@ -46,20 +46,25 @@ class SpecialCard  private constructor(_colour: CardColour, _symbol: SpecialCard
     private val hash = calcHash()
 
     companion object {
-        private val pool = HashMap<SpecialCard, SpecialCard>()
+
+        private val SYMBOLS = SpecialCardSymbol.values().size
+
+        /**
+         * Every possible instance, indexed by colour ordinal and then symbol
+         * ordinal, so that [of] never allocates. Never written once built,
+         * so every thread can share it.
+         */
+        private val pool = Array(CardColour.values().size * SYMBOLS) {
+            SpecialCard(CardColour.values()[it / SYMBOLS],
+                        SpecialCardSymbol.values()[it % SYMBOLS])
+        }
 
         /**
          * Creates a new instance.
          */
         @JvmStatic
-        fun of(_colour: CardColour, _symbol: SpecialCardSymbol): SpecialCard {
-            val candidate = SpecialCard(_colour, _symbol)
-            return if (pool.containsKey(candidate)) pool[candidate]!!
-            else {
-                pool[candidate] = candidate
-                candidate
-            }
-        }
+        fun of(_colour: CardColour, _symbol: SpecialCardSymbol): SpecialCard =
+            pool[_colour.ordinal * SYMBOLS + _symbol.ordinal]
     }
 
     /**
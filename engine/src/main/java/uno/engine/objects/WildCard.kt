@@ -43,34 +43,35 @@ class WildCard private constructor(
 
     companion object {
 
-        private val pool = HashMap<WildCard, WildCard>()
+        /** Colourless plus one per colour */
+        private val COLOUR_OPTIONS = CardColour.values().size + 1
+
+        /**
+         * Every possible instance, indexed by symbol ordinal and then by
+         * colour (0 for none, ordinal + 1 otherwise), so that [of] never
+         * allocates. Never written once built, so every thread can share it.
+         */
+        private val pool = Array(WildCardSymbol.values().size * COLOUR_OPTIONS) {
+            val colour = it % COLOUR_OPTIONS
+            WildCard(WildCardSymbol.values()[it / COLOUR_OPTIONS],
+                     if (colour == 0) Optional.empty()
+                     else Optional.of(CardColour.values()[colour - 1]))
+        }
 
         /**
          * Returns an instance with the given `symbol` and whose `::colour`
          * will be and empty Optional
          */
         @JvmStatic
-        fun of(_symbol: WildCardSymbol): WildCard {
-            val candidate = WildCard(_symbol, Optional.empty())
-            return if (pool.containsKey(candidate)) pool[candidate]!!
-            else {
-                pool[candidate] = candidate
-                candidate
-            }
-        }
+        fun of(_symbol: WildCardSymbol): WildCard =
+            pool[_symbol.ordinal * COLOUR_OPTIONS]
 
         /**
          * Returns an instance with the given `symbol` and `colour`
          */
         @JvmStatic
-        fun of(_symbol: WildCardSymbol, _colour: CardColour): WildCard {
-            val candidate = WildCard(_symbol, Optional.of(_colour))
-            return if (pool.containsKey(candidate)) pool[candidate]!!
-            else {
-                pool[candidate] = candidate
-                candidate
-            }
-        }
+        fun of(_symbol: WildCardSymbol, _colour: CardColour): WildCard =
+            pool[_symbol.ordinal * COLOUR_OPTIONS + _colour.ordinal + 1]
     }
 
     /**
@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.replay
+
+import uno.engine.GameCommand
+import uno.engine.GameSnapshot
+import java.io.*
+
+/**
+ * A recorded game: the sequence of moves executed plus full state checkpoints
+ * taken every [checkpointInterval] moves.
+ *
+ * Moves are numbered from 0, move `n` being the one which takes the game from
+ * position `n` to position `n + 1`. Position 0 is the freshly dealt game and
+ * always has a checkpoint.
+ *
+ * Replay files have the following layout, all values big-endian:
+ * ```
+ * int     magic ("UNOR")
+ * byte    format version
+ * int     checkpoint interval
+ * int     number of moves, followed by one short per move (GameCommand.code)
+ * int     number of checkpoints, followed by one (int position, int offset)
+ *         pair per checkpoint, sorted by position
+ * byte[]  checkpoint data, each checkpoint starting at its offset
+ * ```
+ * Use [ReplayRecorder] to create instances and [ReplayCursor] to navigate them.
+ *
+ * @author Fábio Furtado
+ */
+class Replay internal constructor(
+    val checkpointInterval: Int,
+    private val moves: ShortArray,
+    private val checkpointPositions: IntArray,
+    private val checkpointOffsets: IntArray,
+    private val checkpointData: ByteArray
+) {
+
+    /**
+     * Number of moves in this replay.
+     */
+    val numberOfMoves: Int
+        get() = moves.size
+
+    /**
+     * Returns the move with the given number.
+     *
+     * @throws IndexOutOfBoundsException if there's no such move
+     */
+    fun move(number: Int): GameCommand = GameCommand.ofCode(moves[number].toInt())
+
+    /**
+     * Returns the position of the last checkpoint taken at or before the given
+     * `position`. Runs in logarithmic time.
+     */
+    fun checkpointBefore(position: Int): Int =
+        checkpointPositions[checkpointIndexBefore(position)]
+
+    /**
+     * Returns the state of the game at the checkpoint taken at or before the
+     * given `position`.
+     */
+    internal fun checkpointStateBefore(position: Int): GameSnapshot {
+        val index = checkpointIndexBefore(position)
+        val input = DataInputStream(ByteArrayInputStream(checkpointData,
+                checkpointOffsets[index], checkpointData.size - checkpointOffsets[index]))
+        return SnapshotCodec.read(input)
+    }
+
+    private fun checkpointIndexBefore(position: Int): Int {
+        if (position < 0 || position > numberOfMoves)
+            throw IndexOutOfBoundsException("$position is not a position of this replay")
+        var low = 0
+        var high = checkpointPositions.size - 1
+        while (low < high) {
+            val middle = (low + high + 1) ushr 1
+            if (checkpointPositions[middle] <= position) low = middle
+            else high = middle - 1
+        }
+        return low
+    }
+
+    /**
+     * Writes this replay to the given stream. The stream is not closed.
+     */
+    @Throws(IOException::class)
+    fun write(output: OutputStream) {
+        val out = DataOutputStream(BufferedOutputStream(output))
+        out.writeInt(MAGIC)
+        out.writeByte(VERSION)
+        out.writeInt(checkpointInterval)
+        out.writeInt(moves.size)
+        for (move in moves) out.writeShort(move.toInt())
+        out.writeInt(checkpointPositions.size)
+        for (i in checkpointPositions.indices) {
+            out.writeInt(checkpointPositions[i])
+            out.writeInt(checkpointOffsets[i])
+        }
+        out.write(checkpointData)
+        out.flush()
+    }
+
+    companion object {
+
+        private const val MAGIC = 0x554E4F52
+        private const val VERSION = 1
+
+        /**
+         * Reads a replay from the given stream. The stream is not closed.
+         *
+         * @throws IOException if the stream does not hold a valid replay
+         */
+        @JvmStatic
+        @Throws(IOException::class)
+        fun read(input: InputStream): Replay {
+            val data = DataInputStream(BufferedInputStream(input))
+            if (data.readInt() != MAGIC) throw IOException("Not a replay file")
+            val version = data.readUnsignedByte()
+            if (version != VERSION)
+                throw IOException("Unsupported replay format version $version")
+            val interval = data.readInt()
+            val moves = ShortArray(checkedSize(data.readInt()))
+            for (i in moves.indices) moves[i] = data.readShort()
+            val numberOfCheckpoints = checkedSize(data.readInt())
+            if (numberOfCheckpoints == 0) throw IOException("Replay without checkpoints")
+            val positions = IntArray(numberOfCheckpoints)
+            val offsets = IntArray(numberOfCheckpoints)
+            for (i in 0 until numberOfCheckpoints) {
+                positions[i] = data.readInt()
+                offsets[i] = data.readInt()
+            }
+            if (positions[0] != 0) throw IOException("Missing initial checkpoint")
+            return Replay(interval, moves, positions, offsets, data.readBytes())
+        }
+
+        @Throws(IOException::class)
+        private fun checkedSize(size: Int): Int {
+            if (size < 0) throw IOException("Corrupted replay file")
+            return size
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.replay
+
+import uno.engine.Game
+import uno.engine.UnoGame
+
+/**
+ * Navigates a [Replay], rebuilding the game at any of its positions.
+ *
+ * Seeking restores the nearest checkpoint at or before the target and applies
+ * the remaining moves, so no more than [Replay.checkpointInterval] - 1 moves
+ * are executed per seek, regardless of the replay's length.
+ *
+ * @constructor creates a cursor at position 0
+ * @author Fábio Furtado
+ */
+class ReplayCursor(private val replay: Replay) {
+
+    private var current = Game.restore(replay.checkpointStateBefore(0))
+
+    /**
+     * Number of moves applied to reach the current game.
+     */
+    var position = 0
+        private set
+
+    /**
+     * The game at the current position.
+     *
+     * It must not be modified, use [seek], [next] and [previous] instead.
+     */
+    val game: UnoGame
+        get() = current
+
+    /**
+     * Moves the cursor to the given position.
+     *
+     * @param target number of moves applied, from 0 to [Replay.numberOfMoves]
+     * @return the game at that position
+     * @throws IndexOutOfBoundsException if `target` is not a position of the
+     * replay
+     */
+    fun seek(target: Int): UnoGame {
+        val checkpoint = replay.checkpointBefore(target)
+        if (target < position || checkpoint > position) {
+            current = Game.restore(replay.checkpointStateBefore(target))
+            position = checkpoint
+        }
+        while (position < target)
+            current.executeMove(replay.move(position++))
+        return current
+    }
+
+    /**
+     * Moves the cursor one move forward.
+     *
+     * @return false if already at the end of the replay
+     */
+    fun next(): Boolean {
+        if (position == replay.numberOfMoves) return false
+        seek(position + 1)
+        return true
+    }
+
+    /**
+     * Moves the cursor one move backward.
+     *
+     * @return false if already at the beginning of the replay
+     */
+    fun previous(): Boolean {
+        if (position == 0) return false
+        seek(position - 1)
+        return true
+    }
+}
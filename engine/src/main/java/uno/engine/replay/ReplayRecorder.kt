@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.replay
+
+import uno.engine.Game
+import uno.engine.GameCommand
+import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
+import uno.engine.engineExceptions.MissingColourForWildCardException
+import java.io.ByteArrayOutputStream
+import java.io.DataOutputStream
+
+/**
+ * Executes moves on a [Game] while recording them into a [Replay].
+ *
+ * Moves must be executed through this class for the recording to be complete.
+ * A full state checkpoint is taken when recording starts and after every
+ * `checkpointInterval` moves.
+ *
+ * @constructor starts recording `game` from its current state
+ * @author Fábio Furtado
+ */
+class ReplayRecorder @JvmOverloads constructor(
+    private val game: Game,
+    private val checkpointInterval: Int = DEFAULT_CHECKPOINT_INTERVAL
+) {
+
+    private var moves = ShortArray(128)
+    private var numberOfMoves = 0
+    private val checkpointPositions = ArrayList<Int>()
+    private val checkpointOffsets = ArrayList<Int>()
+    private val checkpointBytes = ByteArrayOutputStream()
+    private val checkpointOut = DataOutputStream(checkpointBytes)
+
+    init {
+        if (checkpointInterval < 1)
+            throw IllegalArgumentException("The checkpoint interval must be positive")
+        checkpoint()
+    }
+
+    /**
+     * @see Game.executeMove
+     */
+    @Throws(CardIndexOutOfHandBoundsException::class,
+            MissingColourForWildCardException::class)
+    fun executeMove(command: GameCommand): Int {
+        val result = game.executeMove(command)
+        if (result == 0) record(command)
+        return result
+    }
+
+    /**
+     * @see Game.goBot
+     */
+    fun goBot(): GameCommand {
+        val move = game.goBot()
+        record(move)
+        return move
+    }
+
+    /**
+     * Returns a replay with everything recorded so far.
+     */
+    fun toReplay() = Replay(checkpointInterval, moves.copyOf(numberOfMoves),
+            checkpointPositions.toIntArray(), checkpointOffsets.toIntArray(),
+            checkpointBytes.toByteArray())
+
+    private fun record(move: GameCommand) {
+        if (numberOfMoves == moves.size) moves = moves.copyOf(moves.size * 2)
+        moves[numberOfMoves++] = move.code.toShort()
+        if (numberOfMoves % checkpointInterval == 0) checkpoint()
+    }
+
+    private fun checkpoint() {
+        checkpointPositions.add(numberOfMoves)
+        checkpointOffsets.add(checkpointOut.size())
+        SnapshotCodec.write(game.snapshot(), checkpointOut)
+    }
+
+    companion object {
+
+        /**
+         * Number of moves between checkpoints if none is specified.
+         */
+        const val DEFAULT_CHECKPOINT_INTERVAL = 32
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.engine.replay
+
+import uno.engine.CardCodes
+import uno.engine.CardColour
+import uno.engine.GameSnapshot
+import uno.engine.objects.Card
+import java.io.DataInput
+import java.io.DataOutput
+import java.io.IOException
+
+/**
+ * Writes and reads [GameSnapshot]s in the binary layout used by replay files.
+ *
+ * @author Fábio Furtado
+ */
+internal object SnapshotCodec {
+
+    fun write(snapshot: GameSnapshot, out: DataOutput) {
+        out.writeByte(snapshot.players.size)
+        for (player in snapshot.players) {
+            out.writeUTF(player.id)
+            out.writeBoolean(player.isBot)
+            writeCards(player.hand, out)
+        }
+        writeCards(snapshot.deck, out)
+        writeCards(snapshot.table, out)
+        out.writeByte(snapshot.turn)
+        out.writeByte(snapshot.previous)
+        out.writeByte(snapshot.direction)
+        out.writeByte(snapshot.lastPickedColour.ordinal)
+        out.writeLong(snapshot.randomState)
+    }
+
+    @Throws(IOException::class)
+    fun read(input: DataInput): GameSnapshot {
+        val numberOfPlayers = input.readUnsignedByte()
+        val players = ArrayList<GameSnapshot.PlayerSnapshot>(numberOfPlayers)
+        for (i in 0 until numberOfPlayers) {
+            val id = input.readUTF()
+            val isBot = input.readBoolean()
+            players.add(GameSnapshot.PlayerSnapshot(id, isBot, readCards(input)))
+        }
+        val deck = readCards(input)
+        val table = readCards(input)
+        val turn = input.readUnsignedByte()
+        val previous = input.readUnsignedByte()
+        val direction = input.readByte().toInt()
+        val colours = CardColour.values()
+        val colourIndex = input.readUnsignedByte()
+        if (turn >= numberOfPlayers || previous >= numberOfPlayers ||
+                (direction != 1 && direction != -1) || colourIndex >= colours.size)
+            throw IOException("Corrupted checkpoint")
+        return GameSnapshot(players, deck, table, turn, previous, direction,
+                colours[colourIndex], input.readLong())
+    }
+
+    private fun writeCards(cards: List<Card>, out: DataOutput) {
+        out.writeShort(cards.size)
+        for (card in cards) out.writeByte(CardCodes.encode(card))
+    }
+
+    @Throws(IOException::class)
+    private fun readCards(input: DataInput): List<Card> {
+        val size = input.readUnsignedShort()
+        val cards = ArrayList<Card>(size)
+        try {
+            for (i in 0 until size) cards.add(CardCodes.decode(input.readUnsignedByte()))
+        } catch (e: IllegalArgumentException) {
+            throw IOException("Corrupted checkpoint", e)
+        }
+        return cards
+    }
+}
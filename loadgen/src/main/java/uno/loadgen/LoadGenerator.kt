@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.loadgen
+
+import uno.engine.CardCodes
+import uno.engine.GameCommand
+import uno.engine.objects.Bot
+import uno.engine.objects.Card
+import uno.server.GameSessionManager
+import uno.server.net.Protocol
+import uno.server.net.UnoClient
+import uno.util.LatencyHistogram
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * Simulates many concurrent human players, each one playing its own game
+ * against bots, to find how much load a deployment can take.
+ *
+ * The load is closed-loop: each player submits its next move only after the
+ * previous one completed, no sooner than `1 / movesPerSecond` seconds after
+ * it. Players pick their moves like [uno.engine.objects.BotPlayer] does and
+ * start a new game whenever theirs is over. The time taken by each move, from
+ * submission to completion, is recorded.
+ *
+ * @param numberOfPlayers number of simulated players
+ * @param movesPerSecond moves each player submits per second, 0 for as many
+ * as possible
+ * @param durationSeconds how long to keep submitting moves
+ * @param numberOfBots bots seated at each player's game
+ *
+ * @author Fábio Furtado
+ */
+class LoadGenerator(
+    private val numberOfPlayers: Int,
+    movesPerSecond: Double,
+    private val durationSeconds: Long,
+    private val numberOfBots: Int
+) {
+
+    private val intervalNanos =
+        if (movesPerSecond > 0) (TimeUnit.SECONDS.toNanos(1) / movesPerSecond).toLong()
+        else 0L
+
+    private val latency = LatencyHistogram()
+    private val moves = LongAdder()
+    private val errors = LongAdder()
+
+    /**
+     * Runs the load against an in-process session manager. Bots are run with
+     * [GameSessionManager.goBot] and count as moves.
+     */
+    fun runAgainst(manager: GameSessionManager): LoadReport {
+        val clients = Executors.newScheduledThreadPool(
+                Runtime.getRuntime().availableProcessors()) { runnable ->
+            val thread = Thread(runnable, "uno-loadgen")
+            thread.isDaemon = true
+            thread
+        }
+        val start = System.nanoTime()
+        val deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds)
+        val finished = CountDownLatch(numberOfPlayers)
+        for (i in 0 until numberOfPlayers)
+            InProcessPlayer("player$i", manager, clients, deadline, finished).newGame()
+        finished.await()
+        clients.shutdown()
+        return LoadReport(moves.sum(), errors.sum(), System.nanoTime() - start, latency)
+    }
+
+    /**
+     * Runs the load against an [uno.server.net.UnoServer], with a connection
+     * and a thread per player. The server plays the bots, so only the players'
+     * own moves are counted.
+     */
+    fun runAgainst(address: InetSocketAddress): LoadReport {
+        val start = System.nanoTime()
+        val deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds)
+        val threads = (0 until numberOfPlayers).map {
+            val thread = Thread({ playRemotely("player$it", address, deadline) },
+                    "uno-loadgen-$it")
+            thread.isDaemon = true
+            thread.start()
+            thread
+        }
+        for (thread in threads) thread.join()
+        return LoadReport(moves.sum(), errors.sum(), System.nanoTime() - start, latency)
+    }
+
+    private fun playRemotely(name: String, address: InetSocketAddress, deadline: Long) {
+        try {
+            UnoClient(address).use { client ->
+                var nextMoveAt = System.nanoTime()
+                while (System.nanoTime() < deadline) {
+                    client.create(numberOfBots, name)
+                    val created = receive(client, Protocol.CREATED) ?: continue
+                    val sessionId = created.payload.long
+                    val me = created.payload.get().toInt()
+                    while (System.nanoTime() < deadline) {
+                        client.view(sessionId)
+                        val state = receive(client, Protocol.STATE) ?: break
+                        val view = state.payload
+                        view.long
+                        val tableTop = CardCodes.decode(view.get().toInt())
+                        val turn = view.get().toInt()
+                        if (view.get().toInt() == 1) break
+                        if (turn != me) continue
+                        val seats = view.get().toInt()
+                        view.position(view.position() + seats)
+                        val hand = ArrayList<Card>()
+                        for (i in 0 until view.get().toInt())
+                            hand.add(CardCodes.decode(view.get().toInt()))
+
+                        val delay = nextMoveAt - System.nanoTime()
+                        if (delay > 0) TimeUnit.NANOSECONDS.sleep(delay)
+                        nextMoveAt = Math.max(nextMoveAt, System.nanoTime()) + intervalNanos
+                        val submitted = System.nanoTime()
+                        client.move(sessionId, MovePicker.pick(hand, tableTop))
+                        var reply: UnoClient.Frame
+                        do reply = client.receive()
+                        while (reply.type == Protocol.MOVED && player(reply) != me)
+                        if (reply.type == Protocol.MOVED) record(submitted)
+                        else errors.increment()
+                    }
+                    client.close(sessionId)
+                    receive(client, Protocol.CLOSED)
+                }
+            }
+        } catch (e: IOException) {
+            errors.increment()
+        }
+    }
+
+    /**
+     * Reads frames until one of the expected type arrives. Other events are
+     * skipped.
+     *
+     * @return the frame, null if an error frame came first
+     */
+    private fun receive(client: UnoClient, type: Int): UnoClient.Frame? {
+        while (true) {
+            val frame = client.receive()
+            if (frame.type == type) return frame
+            if (frame.type == Protocol.ERROR) {
+                errors.increment()
+                return null
+            }
+        }
+    }
+
+    private fun player(moved: UnoClient.Frame) =
+        moved.payload.get(moved.payload.position() + 8).toInt()
+
+    private fun record(submitted: Long) {
+        latency.record(System.nanoTime() - submitted)
+        moves.increment()
+    }
+
+    private object GameOver
+
+    private object BotTurn
+
+    /**
+     * A player driven asynchronously: every step runs on the client pool once
+     * the previous request completed.
+     */
+    private inner class InProcessPlayer(
+        private val name: String,
+        private val manager: GameSessionManager,
+        private val clients: ScheduledExecutorService,
+        private val deadline: Long,
+        private val finished: CountDownLatch
+    ) {
+        private var sessionId = 0L
+        private var nextMoveAt = System.nanoTime()
+
+        fun newGame() {
+            if (System.nanoTime() >= deadline) {
+                finished.countDown()
+                return
+            }
+            manager.createSession(numberOfBots, name).whenCompleteAsync({ id, error ->
+                if (error != null) {
+                    errors.increment()
+                    finished.countDown()
+                } else {
+                    sessionId = id
+                    step()
+                }
+            }, clients)
+        }
+
+        private fun step() {
+            if (System.nanoTime() >= deadline) {
+                manager.closeSession(sessionId)
+                finished.countDown()
+                return
+            }
+            manager.query(sessionId) {
+                when {
+                    it.isOver -> GameOver
+                    it.playerInTurn is Bot -> BotTurn
+                    else -> MovePicker.pick(it.getPlayer(name).get().hand, it.tableTop)
+                }
+            }.whenCompleteAsync({ decision, error ->
+                when {
+                    error != null -> restart()
+                    decision === GameOver -> {
+                        manager.closeSession(sessionId)
+                        newGame()
+                    }
+                    decision === BotTurn -> submit { manager.goBot(sessionId) }
+                    else -> {
+                        val now = System.nanoTime()
+                        val delay = Math.max(0, nextMoveAt - now)
+                        nextMoveAt = Math.max(nextMoveAt, now) + intervalNanos
+                        clients.schedule({
+                            submit { manager.executeMove(sessionId, decision as GameCommand) }
+                        }, delay, TimeUnit.NANOSECONDS)
+                    }
+                }
+            }, clients)
+        }
+
+        private fun submit(request: () -> CompletableFuture<*>) {
+            val submitted = System.nanoTime()
+            request().whenCompleteAsync({ result, error ->
+                if (error != null || result == 1) restart()
+                else {
+                    record(submitted)
+                    step()
+                }
+            }, clients)
+        }
+
+        private fun restart() {
+            errors.increment()
+            manager.closeSession(sessionId)
+            newGame()
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.loadgen
+
+import uno.util.LatencyHistogram
+import java.util.concurrent.TimeUnit
+
+/**
+ * Results of a [LoadGenerator] run.
+ *
+ * @property moves number of moves completed
+ * @property errors number of requests which failed or were rejected
+ * @property elapsedNanos duration of the run
+ * @property latency nanoseconds from submitting each move to its completion
+ *
+ * @author Fábio Furtado
+ */
+class LoadReport(val moves: Long, val errors: Long, val elapsedNanos: Long,
+                 val latency: LatencyHistogram) {
+
+    /**
+     * Moves completed per second.
+     */
+    val throughput: Double
+        get() = moves * 1e9 / elapsedNanos
+
+    override fun toString(): String {
+        val sb = StringBuilder()
+        sb.append(String.format("duration    %.1f s%n", elapsedNanos / 1e9))
+        sb.append(String.format("moves       %d%n", moves))
+        sb.append(String.format("throughput  %.1f moves/s%n", throughput))
+        sb.append(String.format("errors      %d%n", errors))
+        sb.append(String.format("latency     p50 %s  p99 %s  p999 %s  max %s%n",
+                micros(latency.getValueAtPercentile(50.0)),
+                micros(latency.getValueAtPercentile(99.0)),
+                micros(latency.getValueAtPercentile(99.9)),
+                micros(latency.max)))
+        return sb.toString()
+    }
+
+    private fun micros(nanos: Long) = "${TimeUnit.NANOSECONDS.toMicros(nanos)} us"
+}
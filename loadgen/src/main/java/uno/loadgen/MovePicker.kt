@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.loadgen
+
+import uno.engine.CardColour
+import uno.engine.GameCommand
+import uno.engine.objects.*
+
+/**
+ * Picks moves the way [BotPlayer] does, from nothing but the player's hand and
+ * the card on the table, so it can be used by clients which have no access to
+ * the game itself.
+ *
+ * @author Fábio Furtado
+ */
+internal object MovePicker {
+
+    /**
+     * Returns a command to play the first valid card of the hand, or to draw if
+     * there's none. Wild cards get the colour the hand has the most of.
+     */
+    fun pick(hand: List<Card>, tableTop: Card): GameCommand {
+        for (i in hand.indices) {
+            val card = hand[i]
+            if (card is WildCard) return GameCommand.of(i, chooseColour(hand))
+            if (isValid(card, tableTop)) return GameCommand.of(i)
+        }
+        return GameCommand.of()
+    }
+
+    private fun isValid(card: Card, tableTop: Card): Boolean {
+        val topColour = when (tableTop) {
+            is Colourful -> tableTop.colour
+            is WildCard -> tableTop.colour.orElse(null)
+            else -> null
+        }
+        if (card is Colourful && card.colour == topColour) return true
+        if (card is NumericCard && tableTop is NumericCard)
+            return card.number == tableTop.number
+        if (card is SpecialCard && tableTop is SpecialCard)
+            return card.symbol == tableTop.symbol
+        return false
+    }
+
+    private fun chooseColour(hand: List<Card>): CardColour {
+        val counts = IntArray(CardColour.values().size)
+        for (card in hand) if (card is Colourful) counts[card.colour.ordinal]++
+        var best = 0
+        for (i in counts.indices) if (counts[i] > counts[best]) best = i
+        return CardColour.values()[best]
+    }
+}
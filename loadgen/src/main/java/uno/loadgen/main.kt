@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.loadgen
+
+import uno.server.GameSessionManager
+import uno.server.net.UnoServer
+import java.net.InetSocketAddress
+import kotlin.system.exitProcess
+
+/**
+ * Runs the load generator.
+ *
+ * Options, all optional:
+ * ```
+ * --players N    simulated players (1000)
+ * --rate R       moves per second per player, 0 for unlimited (1)
+ * --duration S   seconds to run (30)
+ * --bots B       bots per game (3)
+ * --shards K     session manager shards, for in-process targets (cores)
+ * --target T     inprocess, loopback or host:port (inprocess)
+ * ```
+ * `loopback` starts a network server in this JVM and connects to it.
+ *
+ * @author Fábio Furtado
+ */
+fun main(args: Array<String>) {
+    val options = HashMap<String, String>()
+    var i = 0
+    while (i < args.size) {
+        if (!args[i].startsWith("--") || i + 1 == args.size) {
+            System.err.println("Invalid argument ${args[i]}")
+            exitProcess(1)
+        }
+        options[args[i].substring(2)] = args[i + 1]
+        i += 2
+    }
+    val generator = LoadGenerator(
+            options["players"]?.toInt() ?: 1000,
+            options["rate"]?.toDouble() ?: 1.0,
+            options["duration"]?.toLong() ?: 30,
+            options["bots"]?.toInt() ?: 3)
+    val shards = options["shards"]?.toInt() ?: Runtime.getRuntime().availableProcessors()
+    val report = when (val target = options["target"] ?: "inprocess") {
+        "inprocess" -> GameSessionManager(shards).use { generator.runAgainst(it) }
+        "loopback" -> GameSessionManager(shards).use { manager ->
+            UnoServer(manager, InetSocketAddress("127.0.0.1", 0)).use { server ->
+                server.start()
+                generator.runAgainst(server.localAddress)
+            }
+        }
+        else -> {
+            val separator = target.lastIndexOf(':')
+            generator.runAgainst(InetSocketAddress(target.substring(0, separator),
+                    target.substring(separator + 1).toInt()))
+        }
+    }
+    print(report)
+}
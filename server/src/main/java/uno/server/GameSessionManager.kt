@@ -0,0 +1,271 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.engine.Game
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+import uno.util.MetricsRegistry
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
+import java.util.function.Supplier
+
+/**
+ * Hosts many concurrent games, each one identified by a session id.
+ *
+ * Sessions are partitioned across [numberOfShards] threads by their id. Each
+ * shard owns its games exclusively and runs every request for them one at a
+ * time, in submission order, so games are never touched by more than one
+ * thread and no locks are taken on the move path. The engine state games on
+ * different shards do share, the card and command tables, is never written
+ * once built. Requests can be submitted from any thread and their results are
+ * delivered through `CompletableFuture`s, which are completed on the shard
+ * thread.
+ *
+ * Sessions can have timers, set through `timeouts`, which draw for humans who
+ * take too long, play for bots after a delay and close idle sessions. Timers
+ * are kept by each shard in a timing wheel, so they cost neither a thread nor
+ * an allocation per turn. Moves made by timers, like any other, are reported
+ * to the `listener` and to the listeners added later, like the front ends
+ * serving the sessions. A timer which throws is counted in the
+ * `server.timers.failed` metric and reported to the listeners. When a human's turn times out and there is no bot
+ * timeout, the bots play right away, as nobody would make them play
+ * otherwise. The timeouts are read from `timeouts` whenever a timer is
+ * set, so running sessions follow any change to them, like a
+ * [uno.data.ConfigBinding] being reloaded.
+ *
+ * @constructor starts `numberOfShards` shard threads
+ * @author Fábio Furtado
+ */
+class GameSessionManager(
+    numberOfShards: Int,
+    private val timeouts: Supplier<SessionTimeouts>,
+    listener: SessionListener?
+) : AutoCloseable {
+
+    private val shards: Array<Shard>
+    private val nextSessionId = AtomicLong()
+    private val metricsPrefix = "server.manager" + nextManagerIndex.getAndIncrement() + "."
+
+    @Volatile
+    private var listeners =
+        if (listener == null) emptyArray() else arrayOf(listener)
+
+    /**
+     * Passes the events of every session on to all the [listeners].
+     */
+    private val dispatcher = object : SessionListener {
+
+        override fun onMove(sessionId: Long, player: Int, move: GameCommand,
+                            game: UnoGame) {
+            for (each in listeners) each.onMove(sessionId, player, move, game)
+        }
+
+        override fun onExpired(sessionId: Long) {
+            for (each in listeners) each.onExpired(sessionId)
+        }
+
+        override fun onClosed(sessionId: Long) {
+            for (each in listeners) each.onClosed(sessionId)
+        }
+
+        override fun onTimerFailed(sessionId: Long, error: Exception) {
+            for (each in listeners) each.onTimerFailed(sessionId, error)
+        }
+    }
+
+    init {
+        if (numberOfShards < 1)
+            throw IllegalArgumentException("At least one shard is needed")
+        shards = Array(numberOfShards) { Shard(it) }
+        for (shard in shards) shard.start()
+        MetricsRegistry.getDefault().gauge(metricsPrefix + "queueDepth") {
+            var depth = 0L
+            for (shard in shards) depth += shard.queueDepth
+            depth
+        }
+    }
+
+    /**
+     * Creates a manager whose sessions always have the given `timeouts`.
+     */
+    @JvmOverloads
+    constructor(numberOfShards: Int = Runtime.getRuntime().availableProcessors(),
+                timeouts: SessionTimeouts = SessionTimeouts.NONE,
+                listener: SessionListener? = null) :
+            this(numberOfShards, Supplier { timeouts }, listener)
+
+    /**
+     * Number of shard threads.
+     */
+    val numberOfShards: Int
+        get() = shards.size
+
+    /**
+     * Adds a listener which receives the events of every session from now on.
+     */
+    @Synchronized
+    fun addListener(listener: SessionListener) {
+        listeners += listener
+    }
+
+    /**
+     * Removes a listener previously added.
+     */
+    @Synchronized
+    fun removeListener(listener: SessionListener) {
+        listeners = listeners.filter { it !== listener }.toTypedArray()
+    }
+
+    /**
+     * Creates a new session hosting a game with the given players.
+     *
+     * @see Game.Factory.createGame
+     * @return future with the id of the new session
+     */
+    fun createSession(numberOfBots: Int,
+                      vararg humanPlayersNames: String): CompletableFuture<Long> {
+        val sessionId = nextSessionId.getAndIncrement()
+        val names = humanPlayersNames.copyOf()
+        val future = CompletableFuture<Long>()
+        val shard = shardOf(sessionId)
+        shard.submit(Runnable {
+            try {
+                shard.sessions[sessionId] = Session(sessionId,
+                        Game.createGame(numberOfBots, *names), shard, timeouts, dispatcher)
+                ServerMetrics.sessionsCreated.increment()
+                future.complete(sessionId)
+            } catch (e: Exception) {
+                future.completeExceptionally(e)
+            }
+        })
+        return future
+    }
+
+    /**
+     * Executes the given command in the game of the given session.
+     *
+     * @see UnoGame.executeMove
+     * @return future with the execution result, completed exceptionally with
+     * [SessionNotFoundException] if the session does not exist
+     */
+    fun executeMove(sessionId: Long, command: GameCommand): CompletableFuture<Int> =
+        submit(sessionId) { it.executeMove(command) }
+
+    /**
+     * Makes the bot in turn play in the game of the given session.
+     *
+     * @see UnoGame.goBot
+     * @return future with the bot's move, completed exceptionally with
+     * [SessionNotFoundException] if the session does not exist
+     */
+    fun goBot(sessionId: Long): CompletableFuture<GameCommand> =
+        submit(sessionId) { it.goBot() }
+
+    /**
+     * Makes the bot in turn in the given session play, its decision being
+     * computed on [uno.engine.BotScheduler.default] rather than on the shard
+     * thread.
+     *
+     * @return future with the bot's move
+     * @see UnoGame.goBotAsync
+     */
+    fun goBotAsync(sessionId: Long): CompletableFuture<GameCommand> =
+        submit(sessionId) { it.goBotAsync() }.thenCompose { it }
+
+    /**
+     * Runs the given `action` on the game of the given session, on the thread
+     * which owns it. The game must not escape the action.
+     *
+     * @return future with the action's result, completed exceptionally with
+     * [SessionNotFoundException] if the session does not exist
+     */
+    fun <T> query(sessionId: Long, action: (UnoGame) -> T): CompletableFuture<T> =
+        submit(sessionId, action)
+
+    /**
+     * Closes the given session, discarding its game.
+     *
+     * @return future with true if the session existed, false if not
+     */
+    fun closeSession(sessionId: Long): CompletableFuture<Boolean> {
+        val future = CompletableFuture<Boolean>()
+        val shard = shardOf(sessionId)
+        shard.submit(Runnable {
+            try {
+                val session = shard.sessions.remove(sessionId)
+                if (session != null) {
+                    session.close()
+                    ServerMetrics.sessionsClosed.increment()
+                    dispatcher.onClosed(sessionId)
+                }
+                future.complete(session != null)
+            } catch (e: Exception) {
+                future.completeExceptionally(e)
+            }
+        })
+        return future
+    }
+
+    /**
+     * Returns the number of requests waiting to be run by the given shard.
+     */
+    fun queueDepth(shard: Int) = shards[shard].queueDepth
+
+    /**
+     * Returns the number of requests waiting to be run by each shard, indexed
+     * by shard.
+     */
+    fun queueDepths() = IntArray(shards.size) { shards[it].queueDepth }
+
+    /**
+     * Stops all shard threads after they run the requests already submitted.
+     * Requests submitted afterwards are rejected.
+     */
+    override fun close() {
+        for (shard in shards) shard.stop()
+        for (shard in shards) shard.join(TimeUnit.SECONDS.toMillis(5))
+        MetricsRegistry.getDefault().removeAll(metricsPrefix)
+    }
+
+    private fun <T> submit(sessionId: Long, action: (UnoGame) -> T): CompletableFuture<T> {
+        val future = CompletableFuture<T>()
+        val shard = shardOf(sessionId)
+        shard.submit(Runnable {
+            val session = shard.sessions[sessionId]
+            if (session == null)
+                future.completeExceptionally(SessionNotFoundException(sessionId))
+            else try {
+                session.lastActivity = System.nanoTime()
+                future.complete(action(session))
+            } catch (e: Exception) {
+                future.completeExceptionally(e)
+            }
+        })
+        return future
+    }
+
+    private fun shardOf(sessionId: Long) =
+        shards[java.lang.Long.remainderUnsigned(sessionId, shards.size.toLong()).toInt()]
+
+    private companion object {
+        val nextManagerIndex = AtomicInteger()
+    }
+}
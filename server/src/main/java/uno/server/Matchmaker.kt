@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.engine.Game
+import uno.util.LatencyHistogram
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * Queues waiting human players and seats them at new games of a
+ * [GameSessionManager] as soon as possible.
+ *
+ * A table is formed as soon as [tableSize] players are waiting. When the
+ * player who has been waiting the longest reaches [backfillAfterMillis], a
+ * table is formed with whoever is waiting, up to [tableSize], and the
+ * remaining seats are given to bots.
+ *
+ * Players are handed over to a single matcher thread through a lock-free
+ * queue, so enqueueing never blocks and the matcher's own bookkeeping needs
+ * no synchronization. The matcher parks while nobody is waiting, and
+ * otherwise until a table is full or the next backfill is due. The time each
+ * player waited is recorded in [timeToMatch].
+ *
+ * @constructor starts the matcher thread
+ * @author Fábio Furtado
+ */
+class Matchmaker @JvmOverloads constructor(
+    private val manager: GameSessionManager,
+    val tableSize: Int = Game.MAX_NUMBER_OF_PLAYERS,
+    val backfillAfterMillis: Long = 2000
+) : AutoCloseable {
+
+    private val incoming = ConcurrentLinkedQueue<Ticket>()
+    private val incomingCount = AtomicInteger()
+
+    /**
+     * Players received by the matcher thread and not yet seated, in arrival
+     * order. Only accessed from the matcher thread.
+     */
+    private val waiting = ArrayList<Ticket>()
+    private val thread = Thread(this::run, "uno-matchmaker")
+
+    @Volatile
+    private var running = true
+
+    /**
+     * Whether the matcher is parked with no deadline, so that it must be
+     * woken up by the next player.
+     */
+    @Volatile
+    private var idle = false
+
+    /**
+     * Nanoseconds each seated player waited to be matched.
+     */
+    val timeToMatch = LatencyHistogram()
+
+    init {
+        if (tableSize < Game.MIN_NUMBER_OF_PLAYERS || tableSize > Game.MAX_NUMBER_OF_PLAYERS)
+            throw IllegalArgumentException("Tables must have between " +
+                    "${Game.MIN_NUMBER_OF_PLAYERS} and ${Game.MAX_NUMBER_OF_PLAYERS} seats")
+        thread.isDaemon = true
+        thread.start()
+    }
+
+    /**
+     * Number of players waiting to be seated.
+     */
+    val numberOfWaitingPlayers: Int
+        get() = incomingCount.get()
+
+    /**
+     * Queues the given player for a game.
+     *
+     * Two players with the same name are never seated at the same table.
+     *
+     * @return ticket whose [Ticket.match] completes when the player is seated
+     */
+    fun enqueue(playerName: String): Ticket {
+        if (!running) throw IllegalStateException("The matchmaker is closed")
+        val ticket = Ticket(playerName, System.nanoTime())
+        incoming.offer(ticket)
+        if (incomingCount.incrementAndGet() >= tableSize || idle) LockSupport.unpark(thread)
+        return ticket
+    }
+
+    /**
+     * Stops matching. Players still waiting have their matches cancelled.
+     */
+    override fun close() {
+        running = false
+        LockSupport.unpark(thread)
+        thread.join()
+    }
+
+    private fun run() {
+        val backfillAfterNanos = TimeUnit.MILLISECONDS.toNanos(backfillAfterMillis)
+        while (running) {
+            while (true) {
+                waiting.add(incoming.poll() ?: break)
+                if (waiting.size >= tableSize) formTable(false)
+            }
+            waiting.removeIf { it.state.get() == CANCELLED }
+            while (waiting.size >= tableSize && formTable(false)) {}
+            while (waiting.isNotEmpty() &&
+                    System.nanoTime() - waiting[0].enqueuedAt >= backfillAfterNanos &&
+                    formTable(true)) {}
+            if (waiting.isEmpty()) {
+                idle = true
+                // a player enqueued before the flag was set isn't lost
+                if (incoming.isEmpty() && running) LockSupport.park(this)
+                idle = false
+            } else LockSupport.parkNanos(this,
+                    waiting[0].enqueuedAt + backfillAfterNanos - System.nanoTime())
+        }
+        while (true) waiting.add(incoming.poll() ?: break)
+        for (ticket in waiting) ticket.match.cancel(false)
+    }
+
+    /**
+     * Seats the players waiting the longest at a new table.
+     *
+     * @param backfill if true, empty seats are taken by bots
+     * @return false if no table was formed
+     */
+    private fun formTable(backfill: Boolean): Boolean {
+        val seated = ArrayList<Ticket>(tableSize)
+        val names = HashSet<String>()
+        val iterator = waiting.iterator()
+        while (iterator.hasNext() && seated.size < tableSize) {
+            val ticket = iterator.next()
+            // a cancelled ticket must not keep its name from the table
+            if (ticket.playerName !in names &&
+                    ticket.state.compareAndSet(WAITING, CLAIMING)) {
+                names.add(ticket.playerName)
+                seated.add(ticket)
+            }
+        }
+        if (seated.isEmpty() || (seated.size < tableSize && !backfill)) {
+            for (ticket in seated) ticket.state.set(WAITING)
+            return false
+        }
+        for (ticket in seated) ticket.state.set(SEATED)
+        waiting.removeAll(seated)
+        incomingCount.addAndGet(-seated.size)
+        val now = System.nanoTime()
+        for (ticket in seated) timeToMatch.record(now - ticket.enqueuedAt)
+        val numberOfBots = tableSize - seated.size
+        val humans = seated.map { it.playerName }
+        manager.createSession(numberOfBots, *humans.toTypedArray()).whenComplete { id, error ->
+            for (ticket in seated) {
+                if (error != null) ticket.match.completeExceptionally(error)
+                else ticket.match.complete(Match(id, humans, numberOfBots))
+            }
+        }
+        return true
+    }
+
+    /**
+     * A player waiting for a game.
+     */
+    inner class Ticket internal constructor(val playerName: String,
+                                            internal val enqueuedAt: Long) {
+
+        /**
+         * [WAITING], [CLAIMING] while the matcher is trying to form a table
+         * with it, then [SEATED] or back to [WAITING], or [CANCELLED].
+         */
+        internal val state = AtomicInteger(WAITING)
+
+        /**
+         * Completes when the player is seated.
+         */
+        val match = CompletableFuture<Match>()
+
+        /**
+         * Takes the player out of the queue.
+         *
+         * @return false if the player was already seated
+         */
+        fun cancel(): Boolean {
+            while (true) {
+                when (state.get()) {
+                    WAITING -> if (state.compareAndSet(WAITING, CANCELLED)) break
+                    // the matcher decides within one pass over the queue
+                    CLAIMING -> Thread.onSpinWait()
+                    else -> return false
+                }
+            }
+            incomingCount.decrementAndGet()
+            match.cancel(false)
+            return true
+        }
+    }
+
+    /**
+     * A table formed by the matchmaker.
+     *
+     * @property sessionId the session hosting the game
+     * @property players names of the humans seated, in arrival order
+     * @property numberOfBots seats given to bots
+     */
+    class Match(val sessionId: Long, val players: List<String>, val numberOfBots: Int)
+
+    private companion object {
+        const val WAITING = 0
+        const val CLAIMING = 1
+        const val SEATED = 2
+        const val CANCELLED = 3
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.util.MetricsRegistry
+
+/**
+ * The server's metrics, kept in [MetricsRegistry.getDefault] under the
+ * `server.` prefix. Each session manager also publishes its queue depth as
+ * `server.manager<n>.queueDepth`.
+ *
+ * @author Fábio Furtado
+ */
+internal object ServerMetrics {
+
+    private val registry = MetricsRegistry.getDefault()
+
+    /**
+     * Sessions created.
+     */
+    val sessionsCreated = registry.counter("server.sessions.created")!!
+
+    /**
+     * Sessions closed on request.
+     */
+    val sessionsClosed = registry.counter("server.sessions.closed")!!
+
+    /**
+     * Sessions closed for being idle.
+     */
+    val sessionsExpired = registry.counter("server.sessions.expired")!!
+
+    /**
+     * Timer actions which threw.
+     */
+    val timersFailed = registry.counter("server.timers.failed")!!
+
+    init {
+        registry.gauge("server.sessions.open") {
+            sessionsCreated.sum() - sessionsClosed.sum() - sessionsExpired.sum()
+        }
+    }
+}
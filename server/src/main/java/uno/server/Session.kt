@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.engine.BotScheduler
+import uno.engine.Game
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+import uno.engine.objects.Bot
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.Executor
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+import java.util.function.Supplier
+
+/**
+ * A game hosted by a [Shard], along with its timers.
+ *
+ * Moves must go through this class, which notifies the listener and rearms
+ * the turn timer after each one. Only accessed from the shard thread.
+ *
+ * @author Fábio Furtado
+ */
+internal class Session(
+    val id: Long,
+    private val game: Game,
+    private val shard: Shard,
+    private val timeouts: Supplier<SessionTimeouts>,
+    private val listener: SessionListener
+) : UnoGame by game {
+
+    /**
+     * Fires when the player in turn took too long, or when the bot in turn
+     * should play. Reused for every turn.
+     */
+    private val turnTimer = shard.timer(::onTurnTimeout, ::onTimerFailed)
+    private val idleTimer = shard.timer(::onIdleTimeout, ::onTimerFailed)
+
+    /**
+     * Last time a request was made for this session.
+     */
+    var lastActivity = System.nanoTime()
+
+    private var numberOfMoves = 0L
+    private var closed = false
+
+    init {
+        armTurnTimer()
+        armIdleTimer()
+    }
+
+    override fun executeMove(command: GameCommand): Int {
+        val player = game.getIndex(game.playerInTurn.id)
+        val result = game.executeMove(command)
+        if (result == 0) moved(player, command)
+        return result
+    }
+
+    override fun goBot(): GameCommand {
+        val player = game.getIndex(game.playerInTurn.id)
+        val move = game.goBot()
+        moved(player, move)
+        return move
+    }
+
+    /**
+     * The bot decides on the scheduler and its move is executed back on the
+     * shard thread. The future fails with an [IllegalStateException] if the
+     * session was closed or another move was made meanwhile.
+     *
+     * @see UnoGame.goBotAsync
+     */
+    override fun goBotAsync(): CompletableFuture<GameCommand> {
+        val copy = Game.restore(game.snapshot())
+        val bot = copy.playerInTurn as? Bot ?: throw IllegalStateException()
+        val moves = numberOfMoves
+        return BotScheduler.default
+            .submit(this, BotScheduler.Priority.of(game), bot, copy)
+            .thenApplyAsync(Function { move ->
+                if (closed || numberOfMoves != moves)
+                    throw IllegalStateException("The game changed while the bot decided")
+                val player = game.getIndex(game.playerInTurn.id)
+                game.executeMove(move)
+                moved(player, move)
+                move
+            }, Executor { shard.submit(it) })
+    }
+
+    /**
+     * Cancels the timers of this session.
+     */
+    fun close() {
+        closed = true
+        shard.timers.cancel(turnTimer)
+        shard.timers.cancel(idleTimer)
+    }
+
+    private fun moved(player: Int, move: GameCommand) {
+        numberOfMoves++
+        listener.onMove(id, player, move, this)
+        armTurnTimer()
+        // in case the idle timeout was enabled since
+        if (!idleTimer.isScheduled) armIdleTimer()
+    }
+
+    private fun armTurnTimer() {
+        val timeouts = timeouts.get()
+        val delay = when {
+            game.isOver -> 0
+            game.playerInTurn is Bot -> timeouts.botMillis
+            else -> timeouts.turnMillis
+        }
+        if (delay > 0) shard.timers.schedule(turnTimer, System.nanoTime() + millis(delay))
+        else shard.timers.cancel(turnTimer)
+    }
+
+    private fun onTurnTimeout() {
+        if (game.isOver) return
+        if (game.playerInTurn is Bot) goBot()
+        else {
+            executeMove(GameCommand.of())
+            // with no bot timer, nothing else would make the bots play
+            if (timeouts.get().botMillis <= 0)
+                while (!game.isOver && game.playerInTurn is Bot) goBot()
+        }
+    }
+
+    private fun armIdleTimer() {
+        val idleMillis = timeouts.get().idleMillis
+        if (idleMillis > 0)
+            shard.timers.schedule(idleTimer, lastActivity + millis(idleMillis))
+    }
+
+    private fun onIdleTimeout() {
+        val idleMillis = timeouts.get().idleMillis
+        if (idleMillis <= 0) return
+        val idleUntil = lastActivity + millis(idleMillis)
+        if (System.nanoTime() - idleUntil < 0) {
+            shard.timers.schedule(idleTimer, idleUntil)
+            return
+        }
+        shard.sessions.remove(id)
+        close()
+        ServerMetrics.sessionsExpired.increment()
+        listener.onExpired(id)
+    }
+
+    private fun onTimerFailed(error: Exception) {
+        ServerMetrics.timersFailed.increment()
+        listener.onTimerFailed(id, error)
+    }
+
+    private fun millis(value: Long) = TimeUnit.MILLISECONDS.toNanos(value)
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+
+/**
+ * Receives the events of the sessions of a [GameSessionManager].
+ *
+ * Methods are called on the thread owning the session, right after the event,
+ * so they must return quickly and must not keep the game.
+ *
+ * @author Fábio Furtado
+ */
+interface SessionListener {
+
+    /**
+     * Called after a move is executed in a session, whether it was requested
+     * or made by a timer.
+     *
+     * @param player index of the player who moved
+     */
+    fun onMove(sessionId: Long, player: Int, move: GameCommand, game: UnoGame) {}
+
+    /**
+     * Called when a session is closed for being idle.
+     */
+    fun onExpired(sessionId: Long) {}
+
+    /**
+     * Called when a session is closed on request.
+     */
+    fun onClosed(sessionId: Long) {}
+
+    /**
+     * Called when a timer of a session threw. The session keeps running, with
+     * its timer rearmed only by the next move.
+     */
+    fun onTimerFailed(sessionId: Long, error: Exception) {}
+}
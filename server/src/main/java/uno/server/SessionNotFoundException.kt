@@ -15,27 +15,13 @@
  * along with this program.  If not, see <https://www.gnu.org/licenses/>.
  */
 
-package uno.util;
+package uno.server
 
 /**
- * @param <E> data type
+ * Thrown when a request refers to a session which does not exist or has
+ * already been closed.
+ *
  * @author Fábio Furtado
  */
-class SingleLinkNode<E> {
-
-    private final E element;
-    private final SingleLinkNode<E> next;
-
-    public SingleLinkNode(E element, SingleLinkNode<E> next) {
-        this.element = element;
-        this.next = next;
-    }
-
-    public SingleLinkNode<E> next() {
-        return next;
-    }
-
-    public E getNodeContent() {
-        return element;
-    }
-}
+class SessionNotFoundException(sessionId: Long) :
+        Exception("There's no session with id $sessionId")
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.data.Config
+
+/**
+ * Timers a [GameSessionManager] applies to its sessions. A value of 0 or less
+ * disables the respective timer.
+ *
+ * They can be read from the config files, under `server.timeouts`:
+ * ```
+ * server:
+ *   timeouts:
+ *     turn_millis: 30000
+ *     bot_millis: 1500
+ *     idle_millis: 600000
+ * ```
+ * A binding of them, `ConfigReader.bind(SessionTimeouts::of)`, given to a
+ * [GameSessionManager] lets them be tuned while it runs.
+ *
+ * @property turnMillis time a human has to move before a card is drawn for
+ * them
+ * @property botMillis delay before the bot in turn plays on its own. Bots only
+ * play when asked to if disabled
+ * @property idleMillis time after which a session nobody made requests to is
+ * closed
+ *
+ * @author Fábio Furtado
+ */
+class SessionTimeouts @JvmOverloads constructor(
+    val turnMillis: Long = 0,
+    val botMillis: Long = 0,
+    val idleMillis: Long = 0
+) {
+
+    companion object {
+
+        /**
+         * No timers at all.
+         */
+        @JvmField
+        val NONE = SessionTimeouts()
+
+        /**
+         * Returns the timeouts under `server.timeouts` in the given `config`,
+         * disabling those which are missing.
+         *
+         * @throws uno.data.ConfigException if a timeout isn't a whole number
+         */
+        @JvmStatic
+        fun of(config: Config) = SessionTimeouts(
+            config.getLong("server.timeouts.turn_millis", 0),
+            config.getLong("server.timeouts.bot_millis", 0),
+            config.getLong("server.timeouts.idle_millis", 0))
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server
+
+import uno.util.TimingWheel
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.locks.LockSupport
+
+/**
+ * A single thread which owns a partition of the sessions of a
+ * [GameSessionManager].
+ *
+ * Any thread may submit tasks, but only the shard thread runs them and touches
+ * the games, so neither the games nor the session map need locking. Tasks are
+ * passed through a lock-free queue and the thread parks when it runs out of
+ * work. The shard's timers live in a [TimingWheel] advanced by the same
+ * thread, so they fire with no synchronization either.
+ *
+ * @author Fábio Furtado
+ */
+internal class Shard(val index: Int) : Runnable {
+
+    /**
+     * Sessions owned by this shard. Only accessed from the shard thread.
+     */
+    val sessions = HashMap<Long, Session>()
+
+    /**
+     * Timers of the sessions owned by this shard. Only accessed from the shard
+     * thread.
+     */
+    val timers = TimingWheel(TICK_NANOS, System.nanoTime())
+
+    private val queue = ConcurrentLinkedQueue<Runnable>()
+    private val depth = AtomicInteger()
+    private val thread = Thread(this, "uno-shard-$index")
+
+    @Volatile
+    private var parked = false
+
+    @Volatile
+    private var running = true
+
+    /**
+     * Number of tasks waiting to be run.
+     */
+    val queueDepth: Int
+        get() = depth.get()
+
+    init {
+        thread.isDaemon = true
+    }
+
+    fun start() = thread.start()
+
+    /**
+     * Creates a timer for [timers] running the given action. An exception
+     * thrown by the action is passed to `onFailure` and doesn't stop the
+     * shard, nor the other timers due at the same time.
+     */
+    fun timer(action: () -> Unit, onFailure: (Exception) -> Unit) =
+        TimingWheel.Timer(Runnable {
+            try {
+                action()
+            } catch (e: Exception) {
+                try {
+                    onFailure(e)
+                } catch (ignored: Exception) {
+                    // nor may the code reporting it
+                }
+            }
+        })
+
+    /**
+     * Queues the given task to be run on the shard thread.
+     *
+     * @throws RejectedExecutionException if the shard has been stopped
+     */
+    fun submit(task: Runnable) {
+        if (!running) throw RejectedExecutionException("Shard $index is stopped")
+        depth.incrementAndGet()
+        queue.offer(task)
+        // stopped meanwhile, the thread may have seen an empty queue and quit
+        if (!running && queue.remove(task)) {
+            depth.decrementAndGet()
+            throw RejectedExecutionException("Shard $index is stopped")
+        }
+        if (parked) LockSupport.unpark(thread)
+    }
+
+    /**
+     * Stops the shard thread once the tasks already queued have been run. A
+     * task submitted concurrently is either run or rejected.
+     */
+    fun stop() {
+        running = false
+        LockSupport.unpark(thread)
+    }
+
+    /**
+     * Waits for the shard thread to finish.
+     */
+    fun join(millis: Long) = thread.join(millis)
+
+    override fun run() {
+        while (true) {
+            val task = queue.poll()
+            if (task != null) {
+                depth.decrementAndGet()
+                task.run()
+                if (!timers.isEmpty) timers.advance(System.nanoTime())
+            } else if (!running) {
+                // a task may have been queued between the poll and the check
+                if (queue.isEmpty()) return
+            } else {
+                timers.advance(System.nanoTime())
+                parked = true
+                if (queue.isEmpty() && running) {
+                    if (timers.isEmpty) LockSupport.park(this)
+                    else LockSupport.parkNanos(this, TICK_NANOS)
+                }
+                parked = false
+            }
+        }
+    }
+
+    private companion object {
+        val TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10)
+    }
+}
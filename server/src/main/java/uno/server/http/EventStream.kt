@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.http
+
+import java.io.IOException
+import java.io.OutputStream
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.TimeUnit
+
+/**
+ * A client subscribed to the Server-Sent Events of a session.
+ *
+ * Events are queued by the game's thread without blocking and written by the
+ * thread serving the client's request. A client which falls more than
+ * [CAPACITY] events behind is disconnected instead of slowing the game down.
+ *
+ * @author Fábio Furtado
+ */
+internal class EventStream(private val output: OutputStream) {
+
+    private val queue = ArrayBlockingQueue<String>(CAPACITY)
+
+    @Volatile
+    private var open = true
+
+    /**
+     * Queues an event to be sent.
+     *
+     * @return false if the event could not be queued and the stream was closed
+     */
+    fun offer(event: String, data: String): Boolean {
+        if (open && queue.offer("event: $event\ndata: $data\n\n")) return true
+        open = false
+        queue.clear()
+        queue.offer(END)
+        return false
+    }
+
+    /**
+     * Makes the stream finish after the events already queued are sent.
+     */
+    fun end() {
+        open = false
+        queue.offer(END)
+    }
+
+    /**
+     * Writes queued events until the stream is ended or the client goes away.
+     * Blocks the calling thread meanwhile.
+     */
+    fun serve() {
+        try {
+            while (true) {
+                val event = queue.poll(KEEP_ALIVE_SECONDS, TimeUnit.SECONDS)
+                if (event === END || (event == null && !open)) break
+                output.write((event ?: ": keep-alive\n\n").toByteArray(StandardCharsets.UTF_8))
+                output.flush()
+            }
+        } catch (ignored: IOException) {
+        } catch (e: InterruptedException) {
+            Thread.currentThread().interrupt()
+        } finally {
+            open = false
+            try {
+                output.close()
+            } catch (ignored: IOException) {
+            }
+        }
+    }
+
+    private companion object {
+        const val CAPACITY = 256
+        const val KEEP_ALIVE_SECONDS = 15L
+        val END = String(CharArray(0))
+    }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.http
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpServer
+import uno.engine.CardColour
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
+import uno.engine.engineExceptions.MissingColourForWildCardException
+import uno.engine.objects.Bot
+import uno.engine.objects.Card
+import uno.server.GameSessionManager
+import uno.server.SessionListener
+import uno.server.SessionNotFoundException
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.net.URLDecoder
+import java.nio.charset.StandardCharsets
+import java.security.MessageDigest
+import java.security.SecureRandom
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executor
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.function.BiConsumer
+
+/**
+ * An HTTP/JSON front end for the games of a [GameSessionManager], built on the
+ * JDK's embedded HTTP server.
+ *
+ * Endpoints:
+ * ```
+ * POST   /games?bots=N&player=NAME         creates a game
+ * GET    /games/{id}                       the game as seen by spectators
+ * GET    /games/{id}?token=T               the game as seen by the player
+ * POST   /games/{id}/moves?token=T         draws a card
+ * POST   /games/{id}/moves?token=T&index=I&colour=C
+ *                                          plays a card, colour for wilds only
+ * POST   /games/{id}/bots?token=T          bots play until it's a human's turn
+ * GET    /games/{id}/events                Server-Sent Events stream
+ * DELETE /games/{id}?token=T               closes the game
+ * ```
+ * Creating a game returns a token along with the session id. Only that token
+ * reveals the player's hand, and every request changing the game must carry
+ * it, so other clients can only watch.
+ *
+ * Every executed move, including those made by the session manager's timers,
+ * is pushed as a `moved` event to the game's event streams, so clients don't
+ * need to poll the game. The streams end with a `closed` event, or an
+ * `expired` one if the game was closed for being idle. Responses and events are
+ * JSON documents built on the game's shard thread, which keeps one reusable
+ * [JsonWriter], and are sent from `executor` once ready. Each event stream
+ * holds one of the executor's threads for as long as it is open.
+ *
+ * @constructor binds the server to `address`, use port 0 for any free port
+ * @author Fábio Furtado
+ */
+class HttpApi @JvmOverloads constructor(
+    private val manager: GameSessionManager,
+    address: InetSocketAddress,
+    private val executor: ExecutorService = Executors.newCachedThreadPool()
+) : AutoCloseable {
+
+    private val server = HttpServer.create(address, 0)
+    private val streams = ConcurrentHashMap<Long, MutableList<EventStream>>()
+    private val seats = ConcurrentHashMap<Long, Seat>()
+    private val random = SecureRandom()
+    private val writer = ThreadLocal.withInitial { JsonWriter() }
+
+    /**
+     * Runs responses on [executor], dropping them once it was shut down, since
+     * the server is then stopped too. Rejections would otherwise be thrown on
+     * the shard completing the game's future.
+     */
+    private val responder = Executor { task ->
+        try {
+            executor.execute(task)
+        } catch (e: RejectedExecutionException) {
+            // closed, the exchange goes away with the server
+        }
+    }
+
+    /**
+     * Pushes the events of the games created through this API to their event
+     * streams, on the thread owning the game.
+     */
+    private val listener = object : SessionListener {
+
+        override fun onMove(sessionId: Long, player: Int, move: GameCommand,
+                            game: UnoGame) {
+            val list = streams[sessionId]
+            if (list == null || list.isEmpty()) return
+            val data = moveJson(sessionId, player, move, game)
+            for (stream in list) {
+                if (!stream.offer("moved", data)) list.remove(stream)
+            }
+        }
+
+        override fun onExpired(sessionId: Long) = end(sessionId, "expired")
+
+        override fun onClosed(sessionId: Long) = end(sessionId, "closed")
+    }
+
+    init {
+        manager.addListener(listener)
+        server.executor = executor
+        server.createContext("/games") { exchange ->
+            try {
+                route(exchange)
+            } catch (e: IOException) {
+                exchange.close()
+            }
+        }
+    }
+
+    /**
+     * The address this server is listening on.
+     */
+    val localAddress: InetSocketAddress
+        get() = server.address
+
+    /**
+     * Starts serving requests.
+     */
+    fun start() = server.start()
+
+    /**
+     * Ends every event stream and stops the server. The session manager is
+     * not closed.
+     */
+    override fun close() {
+        for (list in streams.values) for (stream in list) stream.end()
+        server.stop(0)
+        executor.shutdownNow()
+        manager.removeListener(listener)
+    }
+
+    private fun route(exchange: HttpExchange) {
+        val path = exchange.requestURI.path.trim('/').split('/')
+        val method = exchange.requestMethod
+        val parameters = parameters(exchange)
+        if (path.size == 1) {
+            if (method == "POST") create(exchange, parameters)
+            else respond(exchange, 405, error("Method not allowed"))
+            return
+        }
+        val sessionId = path[1].toLongOrNull()
+        if (sessionId == null || path.size > 3) {
+            respond(exchange, 404, error("Not found"))
+            return
+        }
+        when (if (path.size == 2) "$method" else "$method ${path[2]}") {
+            "GET" -> view(exchange, sessionId, parameters["token"])
+            "DELETE" -> if (authorized(exchange, sessionId, parameters["token"]))
+                closeSession(exchange, sessionId)
+            "POST moves" -> if (authorized(exchange, sessionId, parameters["token"]))
+                move(exchange, sessionId, parameters)
+            "POST bots" -> if (authorized(exchange, sessionId, parameters["token"]))
+                bots(exchange, sessionId)
+            "GET events" -> events(exchange, sessionId)
+            else -> respond(exchange, 404, error("Not found"))
+        }
+    }
+
+    private fun create(exchange: HttpExchange, parameters: Map<String, String>) {
+        val bots = parameters["bots"]?.toIntOrNull()
+        val player = parameters["player"]
+        if (bots == null || player == null) {
+            respond(exchange, 400, error("The bots and player parameters are required"))
+            return
+        }
+        val token = newToken()
+        val future = manager.createSession(bots, player).thenCompose { sessionId ->
+            streams[sessionId] = CopyOnWriteArrayList()
+            seats[sessionId] = Seat(player, token)
+            manager.query(sessionId) {
+                json().beginObject()
+                        .name("session").value(sessionId)
+                        .name("player").value(it.getIndex(player))
+                        .name("token").value(token)
+                        .endObject().toString()
+            }
+        }
+        respond(exchange, 201, future)
+    }
+
+    private fun view(exchange: HttpExchange, sessionId: Long, token: String?) {
+        val player = if (token == null) null
+        else if (authorized(exchange, sessionId, token)) seats[sessionId]?.player
+        else return
+        respond(exchange, 200, manager.query(sessionId) {
+            val json = json().beginObject()
+            json.name("session").value(sessionId)
+            writeState(json, it)
+            json.name("players").beginArray()
+            for (i in 0 until it.numberOfPlayers) {
+                val seated = it.getPlayer(i).get()
+                json.beginObject()
+                        .name("id").value(seated.id)
+                        .name("bot").value(seated is Bot)
+                        .name("cards").value(seated.hand.size)
+                        .endObject()
+            }
+            json.endArray()
+            if (player != null) {
+                val own = it.getPlayer(player)
+                if (own.isPresent) {
+                    json.name("hand").beginArray()
+                    for (card in own.get().hand) writeCard(json, card)
+                    json.endArray()
+                }
+            }
+            json.endObject().toString()
+        })
+    }
+
+    private fun move(exchange: HttpExchange, sessionId: Long,
+                     parameters: Map<String, String>) {
+        val command = try {
+            command(parameters)
+        } catch (e: IllegalArgumentException) {
+            respond(exchange, 400, error(e.message ?: "Invalid move"))
+            return
+        }
+        val future = manager.query(sessionId) {
+            when {
+                it.isOver -> Response(409, error("This game is already over!"))
+                it.playerInTurn is Bot -> Response(409, error("It's a bot's turn"))
+                else -> {
+                    val player = it.getIndex(it.playerInTurn.id)
+                    try {
+                        if (it.executeMove(command) == 0)
+                            Response(200, moveJson(sessionId, player, command, it))
+                        else Response(422, error("The move you chose is not valid"))
+                    } catch (e: CardIndexOutOfHandBoundsException) {
+                        Response(422, error("Invalid card index"))
+                    } catch (e: MissingColourForWildCardException) {
+                        Response(422, error("A colour is needed to play a wild card"))
+                    }
+                }
+            }
+        }
+        respond(exchange, future)
+    }
+
+    private fun bots(exchange: HttpExchange, sessionId: Long) {
+        respond(exchange, 200, manager.query(sessionId) {
+            val moves = ArrayList<String>()
+            while (!it.isOver && it.playerInTurn is Bot) {
+                val player = it.getIndex(it.playerInTurn.id)
+                moves.add(moveJson(sessionId, player, it.goBot(), it))
+            }
+            moves.joinToString(",", "[", "]")
+        })
+    }
+
+    private fun events(exchange: HttpExchange, sessionId: Long) {
+        val list = streams[sessionId]
+        if (list == null) {
+            respond(exchange, 404, error(SessionNotFoundException(sessionId).message!!))
+            return
+        }
+        exchange.responseHeaders.add("Content-Type", "text/event-stream")
+        exchange.responseHeaders.add("Cache-Control", "no-cache")
+        exchange.sendResponseHeaders(200, 0)
+        val stream = EventStream(exchange.responseBody)
+        list.add(stream)
+        if (!streams.containsKey(sessionId)) stream.end()
+        stream.serve()
+        list.remove(stream)
+    }
+
+    private fun closeSession(exchange: HttpExchange, sessionId: Long) {
+        val future = manager.closeSession(sessionId).thenApply { existed ->
+            if (existed) Response(204, null)
+            else Response(404, error(SessionNotFoundException(sessionId).message!!))
+        }
+        respond(exchange, future)
+    }
+
+    /**
+     * Tells whether `token` is the one of the session's player, responding
+     * with 403 if it isn't. Compared in constant time so response times give
+     * nothing of the token away.
+     */
+    private fun authorized(exchange: HttpExchange, sessionId: Long,
+                           token: String?): Boolean {
+        val seat = seats[sessionId]
+        if (token != null && seat != null && MessageDigest.isEqual(
+                        token.toByteArray(StandardCharsets.UTF_8),
+                        seat.token.toByteArray(StandardCharsets.UTF_8))) return true
+        respond(exchange, 403, error("Invalid token"))
+        return false
+    }
+
+    /**
+     * Ends the event streams of a game which was closed, after sending them
+     * the given event.
+     */
+    private fun end(sessionId: Long, event: String) {
+        seats.remove(sessionId)
+        val list = streams.remove(sessionId) ?: return
+        for (stream in list) {
+            stream.offer(event, "{\"session\":$sessionId}")
+            stream.end()
+        }
+    }
+
+    /**
+     * Builds the JSON of an executed move. Must be called on the game's thread
+     * right after the move.
+     */
+    private fun moveJson(sessionId: Long, player: Int, command: GameCommand,
+                         game: UnoGame): String {
+        val json = json().beginObject()
+        json.name("session").value(sessionId)
+        json.name("player").value(player)
+        json.name("move").beginObject()
+        if (command.option == 0) json.name("draw").value(true)
+        else {
+            json.name("index").value(command.index)
+            if (command.colour != null)
+                json.name("colour").value(command.colour!!.name.toLowerCase())
+        }
+        json.endObject()
+        json.name("cardsLeft").value(game.previousPlayer.hand.size)
+        writeState(json, game)
+        return json.endObject().toString()
+    }
+
+    private fun writeState(json: JsonWriter, game: UnoGame) {
+        json.name("tableTop")
+        writeCard(json, game.tableTop)
+        json.name("turn").value(game.getIndex(game.playerInTurn.id))
+        json.name("over").value(game.isOver)
+        json.name("winner").value(game.winner?.id)
+    }
+
+    private fun writeCard(json: JsonWriter, card: Card) {
+        json.value(card.toString())
+    }
+
+    private fun command(parameters: Map<String, String>): GameCommand {
+        val index = parameters["index"] ?: return GameCommand.of()
+        val colour = parameters["colour"]
+        return GameCommand.of(
+                index.toIntOrNull() ?: throw IllegalArgumentException("$index is not an index"),
+                if (colour == null) null
+                else CardColour.values().firstOrNull { it.name.equals(colour, true) }
+                        ?: throw IllegalArgumentException("$colour is not a colour"))
+    }
+
+    private fun newToken(): String {
+        val bytes = ByteArray(16)
+        random.nextBytes(bytes)
+        return bytes.joinToString("") { String.format("%02x", it) }
+    }
+
+    private fun json() = writer.get().reset()
+
+    private fun error(message: String) =
+        JsonWriter().beginObject().name("error").value(message).endObject().toString()
+
+    private fun respond(exchange: HttpExchange, status: Int, body: CompletableFuture<String>) =
+        respond(exchange, body.thenApply { Response(status, it) })
+
+    /**
+     * Responds once `future` completes, on the executor rather than on the
+     * game's shard, so no thread waits for the game in the meantime.
+     */
+    private fun respond(exchange: HttpExchange, future: CompletableFuture<Response>) {
+        future.whenCompleteAsync(BiConsumer { response, failure ->
+            try {
+                if (failure == null) respond(exchange, response.status, response.body)
+                else {
+                    val cause = if (failure is CompletionException) failure.cause ?: failure
+                                else failure
+                    if (cause is SessionNotFoundException)
+                        respond(exchange, 404, error(cause.message!!))
+                    else respond(exchange, 400,
+                                 error(cause.message ?: cause.javaClass.simpleName))
+                }
+            } catch (e: IOException) {
+                exchange.close()
+            }
+        }, responder)
+    }
+
+    private fun respond(exchange: HttpExchange, status: Int, body: String?) {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1)
+            exchange.close()
+            return
+        }
+        val bytes = body.toByteArray(StandardCharsets.UTF_8)
+        exchange.responseHeaders.add("Content-Type", "application/json")
+        exchange.sendResponseHeaders(status, bytes.size.toLong())
+        exchange.responseBody.use { it.write(bytes) }
+    }
+
+    private fun parameters(exchange: HttpExchange): Map<String, String> {
+        val query = exchange.requestURI.rawQuery ?: return emptyMap()
+        val parameters = HashMap<String, String>()
+        for (pair in query.split('&')) {
+            val separator = pair.indexOf('=')
+            if (separator > 0)
+                parameters[decode(pair.substring(0, separator))] =
+                        decode(pair.substring(separator + 1))
+        }
+        return parameters
+    }
+
+    private fun decode(value: String) =
+        URLDecoder.decode(value, StandardCharsets.UTF_8.name())
+
+    private class Response(val status: Int, val body: String?)
+
+    /**
+     * The human player of a session and the token which reveals their hand.
+     */
+    private class Seat(val player: String, val token: String)
+}
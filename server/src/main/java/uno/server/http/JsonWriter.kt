@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.http
+
+/**
+ * A minimal streaming JSON writer which appends straight into a reusable
+ * buffer. Call [reset] to start a new document on the same instance.
+ *
+ * It does no validation beyond placing commas and colons, so calls must be
+ * balanced by the caller.
+ *
+ * @author Fábio Furtado
+ */
+class JsonWriter {
+
+    private val buffer = StringBuilder(256)
+
+    /**
+     * For each nesting level, whether a value has already been written in it.
+     */
+    private var hasValue = BooleanArray(16)
+    private var depth = 0
+    private var afterName = false
+
+    /**
+     * Clears the buffer so a new document can be written.
+     */
+    fun reset(): JsonWriter {
+        buffer.setLength(0)
+        depth = 0
+        hasValue[0] = false
+        afterName = false
+        return this
+    }
+
+    fun beginObject() = open('{')
+
+    fun endObject() = close('}')
+
+    fun beginArray() = open('[')
+
+    fun endArray() = close(']')
+
+    /**
+     * Writes the name of the next member of the current object.
+     */
+    fun name(name: String): JsonWriter {
+        separate()
+        string(name)
+        buffer.append(':')
+        afterName = true
+        return this
+    }
+
+    fun value(value: String?): JsonWriter {
+        separate()
+        if (value == null) buffer.append("null") else string(value)
+        return this
+    }
+
+    fun value(value: Long): JsonWriter {
+        separate()
+        buffer.append(value)
+        return this
+    }
+
+    fun value(value: Int): JsonWriter {
+        separate()
+        buffer.append(value)
+        return this
+    }
+
+    fun value(value: Boolean): JsonWriter {
+        separate()
+        buffer.append(value)
+        return this
+    }
+
+    /**
+     * Returns the document written so far.
+     */
+    override fun toString() = buffer.toString()
+
+    private fun open(bracket: Char): JsonWriter {
+        separate()
+        buffer.append(bracket)
+        depth++
+        if (depth == hasValue.size) hasValue = hasValue.copyOf(depth * 2)
+        hasValue[depth] = false
+        return this
+    }
+
+    private fun close(bracket: Char): JsonWriter {
+        buffer.append(bracket)
+        depth--
+        return this
+    }
+
+    private fun separate() {
+        if (afterName) afterName = false
+        else {
+            if (hasValue[depth]) buffer.append(',')
+            hasValue[depth] = true
+        }
+    }
+
+    private fun string(value: String) {
+        buffer.append('"')
+        for (c in value) {
+            when {
+                c == '"' -> buffer.append("\\\"")
+                c == '\\' -> buffer.append("\\\\")
+                c == '\n' -> buffer.append("\\n")
+                c == '\r' -> buffer.append("\\r")
+                c == '\t' -> buffer.append("\\t")
+                c < ' ' -> {
+                    buffer.append("\\u00")
+                    buffer.append(HEX[c.toInt() shr 4])
+                    buffer.append(HEX[c.toInt() and 0xF])
+                }
+                else -> buffer.append(c)
+            }
+        }
+        buffer.append('"')
+    }
+
+    private companion object {
+        const val HEX = "0123456789abcdef"
+    }
+}
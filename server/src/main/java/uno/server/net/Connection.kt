@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.net
+
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.SelectionKey
+import java.nio.channels.SocketChannel
+import java.util.ArrayDeque
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * State of a client connected to an [UnoServer].
+ *
+ * Frames may be queued from any thread, but they are only written by the
+ * server's selector thread, which writes every frame queued since the last
+ * flush with a single gathering write. At most [MAX_QUEUED_FRAMES] frames
+ * wait to be written, so a client which doesn't read can't make the server
+ * run out of memory.
+ *
+ * @author Fábio Furtado
+ */
+internal class Connection(val channel: SocketChannel, val key: SelectionKey) {
+
+    /**
+     * Bytes read but not yet parsed into frames.
+     */
+    val readBuffer: ByteBuffer = ByteBuffer.allocate(4 + Protocol.MAX_FRAME_LENGTH)
+
+    /**
+     * Sessions created by this connection.
+     */
+    val sessions: MutableSet<Long> = ConcurrentHashMap.newKeySet()
+
+    /**
+     * Set while this connection is waiting for the selector thread to flush it.
+     */
+    val flushScheduled = AtomicBoolean()
+
+    /**
+     * Set once a frame was dropped for the queue being full. The connection
+     * must then be closed, as the client missed part of the stream.
+     */
+    @Volatile
+    var overflowed = false
+        private set
+
+    private val outbound = ConcurrentLinkedQueue<ByteBuffer>()
+    private val pending = ArrayDeque<ByteBuffer>()
+    private val gather = arrayOfNulls<ByteBuffer>(MAX_GATHER)
+
+    /**
+     * Frames queued or pending which weren't completely written yet.
+     */
+    private val queued = AtomicInteger()
+
+    /**
+     * Queues a frame, ready to be read, to be written.
+     *
+     * @return false if the frame was dropped for the queue being full, in
+     * which case [overflowed] is set
+     */
+    fun enqueue(frame: ByteBuffer): Boolean {
+        if (queued.incrementAndGet() > MAX_QUEUED_FRAMES) {
+            queued.decrementAndGet()
+            overflowed = true
+            return false
+        }
+        outbound.offer(frame)
+        return true
+    }
+
+    /**
+     * Writes as many queued frames as the socket accepts. Must only be called
+     * from the selector thread.
+     *
+     * @return true if every queued frame was written
+     */
+    @Throws(IOException::class)
+    fun flush(): Boolean {
+        flushScheduled.set(false)
+        while (true) {
+            val frame = outbound.poll() ?: break
+            pending.add(frame)
+        }
+        while (!pending.isEmpty()) {
+            var length = 0
+            for (frame in pending) {
+                gather[length++] = frame
+                if (length == MAX_GATHER) break
+            }
+            channel.write(gather, 0, length)
+            while (!pending.isEmpty() && !pending.peekFirst().hasRemaining()) {
+                pending.pollFirst()
+                queued.decrementAndGet()
+            }
+            if (gather[length - 1]!!.hasRemaining()) break
+        }
+        gather.fill(null)
+        return pending.isEmpty()
+    }
+
+    companion object {
+        private const val MAX_GATHER = 64
+
+        /**
+         * Frames which may wait to be written before the client is considered
+         * too slow and disconnected.
+         */
+        const val MAX_QUEUED_FRAMES = 4096
+    }
+}
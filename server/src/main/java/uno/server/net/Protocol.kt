@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.net
+
+import java.nio.ByteBuffer
+import java.nio.charset.StandardCharsets
+
+/**
+ * Constants and helpers of the binary protocol spoken by [UnoServer].
+ *
+ * Every frame is an int with the length of the rest of the frame followed by
+ * a byte with the frame type and the type specific payload. All values are
+ * big-endian, strings are an unsigned short length followed by UTF-8 bytes,
+ * cards are [uno.engine.CardCodes] bytes and moves are
+ * [uno.engine.GameCommand.code] shorts.
+ *
+ * Requests, sent by clients:
+ * ```
+ * CREATE  byte numberOfBots, string playerName
+ * MOVE    long session, short move
+ * BOT     long session
+ * VIEW    long session
+ * CLOSE   long session
+ * ```
+ * Events, sent by the server:
+ * ```
+ * CREATED long session, byte playerIndex
+ * MOVED   long session, byte playerIndex, short move, byte tableTop,
+ *         byte turn, byte handSize, byte isOver
+ * INVALID long session, short move, byte reason
+ * STATE   long session, byte tableTop, byte turn, byte isOver,
+ *         byte numberOfPlayers, one byte hand size per player,
+ *         byte handSize, one card byte per card in the requester's hand
+ * CLOSED  long session
+ * ERROR   long session, string message
+ * ```
+ *
+ * @author Fábio Furtado
+ */
+object Protocol {
+
+    /**
+     * Maximal length of a frame, length prefix excluded.
+     */
+    const val MAX_FRAME_LENGTH = 4096
+
+    const val CREATE = 1
+    const val MOVE = 2
+    const val BOT = 3
+    const val VIEW = 4
+    const val CLOSE = 5
+
+    const val CREATED = 65
+    const val MOVED = 66
+    const val INVALID = 67
+    const val STATE = 68
+    const val CLOSED = 69
+    const val ERROR = 70
+
+    /**
+     * [INVALID] reason for a card which can't be played on the table top.
+     */
+    const val INVALID_MOVE = 1
+
+    /**
+     * [INVALID] reason for a card index out of the player's hand bounds.
+     */
+    const val INVALID_INDEX = 2
+
+    /**
+     * [INVALID] reason for a wild card played without a colour.
+     */
+    const val MISSING_COLOUR = 3
+
+    /**
+     * Session id used in frames which do not refer to any session.
+     */
+    const val NO_SESSION = -1L
+
+    /**
+     * Allocates a buffer for a frame of the given type with room for
+     * `payloadLength` bytes, with the header already written.
+     */
+    @JvmStatic
+    fun frame(type: Int, payloadLength: Int): ByteBuffer {
+        val buffer = ByteBuffer.allocate(5 + payloadLength)
+        buffer.putInt(1 + payloadLength)
+        buffer.put(type.toByte())
+        return buffer
+    }
+
+    /**
+     * Returns the number of bytes [putString] takes to write `value`.
+     */
+    @JvmStatic
+    fun stringLength(value: String) =
+        2 + value.toByteArray(StandardCharsets.UTF_8).size
+
+    @JvmStatic
+    fun putString(buffer: ByteBuffer, value: String) {
+        val bytes = value.toByteArray(StandardCharsets.UTF_8)
+        buffer.putShort(bytes.size.toShort())
+        buffer.put(bytes)
+    }
+
+    @JvmStatic
+    fun getString(buffer: ByteBuffer): String {
+        val bytes = ByteArray(buffer.short.toInt() and 0xFFFF)
+        buffer.get(bytes)
+        return String(bytes, StandardCharsets.UTF_8)
+    }
+
+    /**
+     * Returns an [ERROR] frame ready to be written.
+     */
+    @JvmStatic
+    fun error(sessionId: Long, message: String): ByteBuffer {
+        val buffer = frame(ERROR, 8 + stringLength(message))
+        buffer.putLong(sessionId)
+        putString(buffer, message)
+        buffer.flip()
+        return buffer
+    }
+}
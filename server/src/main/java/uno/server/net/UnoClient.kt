@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.net
+
+import uno.engine.GameCommand
+import java.io.EOFException
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.nio.ByteBuffer
+import java.nio.channels.SocketChannel
+
+/**
+ * A blocking client for [UnoServer].
+ *
+ * Requests are sent as they're called and frames pushed by the server are
+ * read, in arrival order, with [receive].
+ *
+ * @constructor connects to the server at `address`
+ * @author Fábio Furtado
+ */
+class UnoClient(address: InetSocketAddress) : AutoCloseable {
+
+    private val channel = SocketChannel.open(address)
+    private val header = ByteBuffer.allocate(4)
+
+    init {
+        channel.socket().tcpNoDelay = true
+    }
+
+    /**
+     * Asks for a new game with the given number of bots, in which this client
+     * plays as `playerName`.
+     */
+    @Throws(IOException::class)
+    fun create(numberOfBots: Int, playerName: String) {
+        val buffer = Protocol.frame(Protocol.CREATE, 1 + Protocol.stringLength(playerName))
+        buffer.put(numberOfBots.toByte())
+        Protocol.putString(buffer, playerName)
+        write(buffer)
+    }
+
+    /**
+     * Sends a move for this client's player in the given session.
+     */
+    @Throws(IOException::class)
+    fun move(sessionId: Long, command: GameCommand) {
+        val buffer = Protocol.frame(Protocol.MOVE, 10)
+        buffer.putLong(sessionId)
+        buffer.putShort(command.code.toShort())
+        write(buffer)
+    }
+
+    /**
+     * Makes the bots in turn in the given session play until it's this
+     * client's turn or the game is over.
+     */
+    @Throws(IOException::class)
+    fun bot(sessionId: Long) = sendSessionRequest(Protocol.BOT, sessionId)
+
+    /**
+     * Asks for the state of the given session.
+     */
+    @Throws(IOException::class)
+    fun view(sessionId: Long) = sendSessionRequest(Protocol.VIEW, sessionId)
+
+    /**
+     * Closes the given session.
+     */
+    @Throws(IOException::class)
+    fun close(sessionId: Long) = sendSessionRequest(Protocol.CLOSE, sessionId)
+
+    /**
+     * Blocks until a frame arrives from the server.
+     *
+     * @return the frame, its payload positioned after the type byte
+     * @throws EOFException if the server closed the connection
+     */
+    @Throws(IOException::class)
+    fun receive(): Frame {
+        header.clear()
+        readFully(header)
+        val length = header.getInt(0)
+        if (length < 1 || length > Protocol.MAX_FRAME_LENGTH)
+            throw IOException("Invalid frame length $length")
+        val body = ByteBuffer.allocate(length)
+        readFully(body)
+        body.flip()
+        return Frame(body.get().toInt(), body)
+    }
+
+    override fun close() = channel.close()
+
+    private fun sendSessionRequest(type: Int, sessionId: Long) {
+        val buffer = Protocol.frame(type, 8)
+        buffer.putLong(sessionId)
+        write(buffer)
+    }
+
+    private fun write(buffer: ByteBuffer) {
+        buffer.flip()
+        while (buffer.hasRemaining()) channel.write(buffer)
+    }
+
+    private fun readFully(buffer: ByteBuffer) {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw EOFException()
+        }
+    }
+
+    /**
+     * A frame received from the server.
+     *
+     * @property type one of the event types of [Protocol]
+     * @property payload the frame's payload
+     */
+    class Frame(val type: Int, val payload: ByteBuffer) {
+
+        /**
+         * The session this frame refers to, read without moving the payload's
+         * position.
+         */
+        val sessionId: Long
+            get() = payload.getLong(payload.position())
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.net
+
+import uno.engine.CardCodes
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+import uno.engine.engineExceptions.CardIndexOutOfHandBoundsException
+import uno.engine.engineExceptions.MissingColourForWildCardException
+import uno.engine.objects.Bot
+import uno.server.GameSessionManager
+import uno.server.SessionListener
+import java.io.IOException
+import java.net.InetSocketAddress
+import java.nio.BufferUnderflowException
+import java.nio.ByteBuffer
+import java.nio.channels.SelectionKey
+import java.nio.channels.Selector
+import java.nio.channels.ServerSocketChannel
+import java.nio.channels.SocketChannel
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Serves games of a [GameSessionManager] to remote players through the binary
+ * [Protocol].
+ *
+ * Each connection plays as the only human of the sessions it creates. Bots
+ * play on their own: whenever a session is created or its human moves, the
+ * bots in turn play until it's the human's turn again or the game is over, and
+ * a [Protocol.MOVED] frame is pushed for each move. A [Protocol.BOT] request
+ * does the same, for when a bot's turn was left pending. Moves made by the
+ * session manager's timers are pushed as well, and a [Protocol.CLOSED] frame
+ * is pushed when a session expires.
+ *
+ * A single selector thread does all the socket I/O. Requests are executed on
+ * the session manager's shards and their resulting frames are handed back to
+ * the selector thread, which writes all the frames pending for a connection
+ * with one gathering write. A client which reads too slowly for its frames to
+ * fit in [Connection.MAX_QUEUED_FRAMES] is disconnected instead of stalling
+ * its games or growing the queue without bound.
+ *
+ * @constructor binds the server to `address`, use port 0 for any free port
+ * @author Fábio Furtado
+ */
+class UnoServer(private val manager: GameSessionManager,
+                address: InetSocketAddress) : AutoCloseable {
+
+    private val selector = Selector.open()
+    private val serverChannel = ServerSocketChannel.open()
+    private val pendingFlushes = ConcurrentLinkedQueue<Connection>()
+    private val owners = ConcurrentHashMap<Long, Connection>()
+    private val thread = Thread(this::run, "uno-server")
+
+    @Volatile
+    private var running = true
+
+    /**
+     * Pushes the events of the sessions created through this server, on the
+     * thread owning the session, to the connections which created them.
+     */
+    private val listener = object : SessionListener {
+
+        override fun onMove(sessionId: Long, player: Int, move: GameCommand,
+                            game: UnoGame) {
+            val connection = owners[sessionId] ?: return
+            send(connection, moved(sessionId, player, move, game))
+        }
+
+        override fun onExpired(sessionId: Long) {
+            val connection = owners.remove(sessionId) ?: return
+            connection.sessions.remove(sessionId)
+            send(connection, closed(sessionId))
+        }
+
+        override fun onClosed(sessionId: Long) {
+            owners.remove(sessionId)
+        }
+    }
+
+    init {
+        manager.addListener(listener)
+        serverChannel.bind(address)
+        serverChannel.configureBlocking(false)
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT)
+    }
+
+    /**
+     * The address this server is listening on.
+     */
+    val localAddress: InetSocketAddress
+        get() = serverChannel.localAddress as InetSocketAddress
+
+    /**
+     * Starts accepting connections.
+     */
+    fun start() = thread.start()
+
+    /**
+     * Stops the server and closes every connection and the sessions they
+     * created. The session manager is not closed.
+     */
+    override fun close() {
+        running = false
+        if (thread.state == Thread.State.NEW) {
+            // never started, so nothing else releases them
+            serverChannel.close()
+            selector.close()
+        } else {
+            selector.wakeup()
+            thread.join()
+        }
+        manager.removeListener(listener)
+    }
+
+    private fun run() {
+        while (running) {
+            selector.select()
+            while (true) flush(pendingFlushes.poll() ?: break)
+            val keys = selector.selectedKeys().iterator()
+            while (keys.hasNext()) {
+                val key = keys.next()
+                keys.remove()
+                if (!key.isValid) continue
+                if (key.isAcceptable) accept()
+                else {
+                    val connection = key.attachment() as Connection
+                    if (key.isReadable) read(connection)
+                    if (key.isValid && key.isWritable) flush(connection)
+                }
+            }
+        }
+        for (key in selector.keys()) {
+            val connection = key.attachment()
+            if (connection is Connection) disconnect(connection)
+        }
+        serverChannel.close()
+        selector.close()
+    }
+
+    private fun accept() {
+        val channel: SocketChannel = serverChannel.accept() ?: return
+        channel.configureBlocking(false)
+        channel.socket().tcpNoDelay = true
+        val key = channel.register(selector, SelectionKey.OP_READ)
+        key.attach(Connection(channel, key))
+    }
+
+    private fun read(connection: Connection) {
+        val buffer = connection.readBuffer
+        try {
+            if (connection.channel.read(buffer) < 0) {
+                disconnect(connection)
+                return
+            }
+        } catch (e: IOException) {
+            disconnect(connection)
+            return
+        }
+        buffer.flip()
+        while (buffer.remaining() >= 4) {
+            val length = buffer.getInt(buffer.position())
+            if (length < 1 || length > Protocol.MAX_FRAME_LENGTH) {
+                disconnect(connection)
+                return
+            }
+            if (buffer.remaining() < 4 + length) break
+            val frame = buffer.duplicate()
+            frame.position(buffer.position() + 4)
+            frame.limit(buffer.position() + 4 + length)
+            buffer.position(buffer.position() + 4 + length)
+            try {
+                handle(connection, frame)
+            } catch (e: BufferUnderflowException) {
+                send(connection, listOf(Protocol.error(Protocol.NO_SESSION, "Malformed frame")))
+            }
+        }
+        buffer.compact()
+    }
+
+    private fun flush(connection: Connection) {
+        if (!connection.key.isValid) return
+        if (connection.overflowed) {
+            disconnect(connection)
+            return
+        }
+        try {
+            val key = connection.key
+            if (connection.flush()) key.interestOps(SelectionKey.OP_READ)
+            else key.interestOps(SelectionKey.OP_READ or SelectionKey.OP_WRITE)
+        } catch (e: IOException) {
+            disconnect(connection)
+        }
+    }
+
+    private fun disconnect(connection: Connection) {
+        connection.key.cancel()
+        try {
+            connection.channel.close()
+        } catch (ignored: IOException) {
+        }
+        for (session in connection.sessions) {
+            owners.remove(session)
+            manager.closeSession(session)
+        }
+        connection.sessions.clear()
+    }
+
+    /**
+     * Queues the given frames to be written to the connection. May be called
+     * from any thread.
+     */
+    private fun send(connection: Connection, frames: List<ByteBuffer>) {
+        for (frame in frames) if (!connection.enqueue(frame)) break
+        scheduleFlush(connection)
+    }
+
+    /**
+     * Queues the given frame to be written to the connection. May be called
+     * from any thread.
+     */
+    private fun send(connection: Connection, frame: ByteBuffer) {
+        connection.enqueue(frame)
+        scheduleFlush(connection)
+    }
+
+    private fun scheduleFlush(connection: Connection) {
+        if (connection.flushScheduled.compareAndSet(false, true)) {
+            pendingFlushes.offer(connection)
+            selector.wakeup()
+        }
+    }
+
+    private fun handle(connection: Connection, frame: ByteBuffer) {
+        when (val type = frame.get().toInt()) {
+            Protocol.CREATE -> {
+                val numberOfBots = frame.get().toInt()
+                create(connection, numberOfBots, Protocol.getString(frame))
+            }
+            else -> {
+                val sessionId = frame.long
+                if (sessionId !in connection.sessions) {
+                    send(connection, listOf(Protocol.error(sessionId, "Unknown session")))
+                    return
+                }
+                when (type) {
+                    Protocol.MOVE -> move(connection, sessionId, frame.short.toInt() and 0xFFFF)
+                    Protocol.BOT -> bot(connection, sessionId)
+                    Protocol.VIEW -> reply(connection, sessionId,
+                            manager.query(sessionId) { listOf(state(sessionId, it)) })
+                    Protocol.CLOSE -> {
+                        connection.sessions.remove(sessionId)
+                        owners.remove(sessionId)
+                        reply(connection, sessionId, manager.closeSession(sessionId)
+                                .thenApply { listOf(closed(sessionId)) })
+                    }
+                    else -> send(connection, listOf(Protocol.error(sessionId,
+                            "Unknown frame type $type")))
+                }
+            }
+        }
+    }
+
+    private fun create(connection: Connection, numberOfBots: Int, playerName: String) {
+        val future = manager.createSession(numberOfBots, playerName).thenCompose { sessionId ->
+            connection.sessions.add(sessionId)
+            owners[sessionId] = connection
+            manager.query(sessionId) {
+                // ahead of the bots' moves, which are pushed as they're made
+                send(connection, created(sessionId, it.getIndex(playerName)))
+                playBots(it)
+                emptyList<ByteBuffer>()
+            }
+        }
+        reply(connection, Protocol.NO_SESSION, future)
+    }
+
+    private fun move(connection: Connection, sessionId: Long, code: Int) {
+        val command = try {
+            GameCommand.ofCode(code)
+        } catch (e: IllegalArgumentException) {
+            send(connection, listOf(Protocol.error(sessionId, e.message!!)))
+            return
+        }
+        reply(connection, sessionId, manager.query(sessionId) {
+            val frames = ArrayList<ByteBuffer>()
+            if (it.isOver)
+                frames.add(Protocol.error(sessionId, "This game is already over!"))
+            else if (it.playerInTurn is Bot)
+                frames.add(Protocol.error(sessionId, "It's not your turn"))
+            else {
+                try {
+                    if (it.executeMove(command) == 0) playBots(it)
+                    else frames.add(invalid(sessionId, command, Protocol.INVALID_MOVE))
+                } catch (e: CardIndexOutOfHandBoundsException) {
+                    frames.add(invalid(sessionId, command, Protocol.INVALID_INDEX))
+                } catch (e: MissingColourForWildCardException) {
+                    frames.add(invalid(sessionId, command, Protocol.MISSING_COLOUR))
+                }
+            }
+            frames
+        })
+    }
+
+    private fun bot(connection: Connection, sessionId: Long) {
+        reply(connection, sessionId, manager.query(sessionId) {
+            val frames = ArrayList<ByteBuffer>()
+            if (it.isOver)
+                frames.add(Protocol.error(sessionId, "This game is already over!"))
+            else if (it.playerInTurn !is Bot)
+                frames.add(Protocol.error(sessionId, "It's not a bot's turn"))
+            else playBots(it)
+            frames
+        })
+    }
+
+    private fun reply(connection: Connection, sessionId: Long,
+                      future: CompletableFuture<out List<ByteBuffer>>) {
+        future.whenComplete { frames, error ->
+            if (error == null) send(connection, frames)
+            else {
+                val cause = error.cause ?: error
+                send(connection, listOf(Protocol.error(sessionId,
+                        cause.message ?: cause.javaClass.simpleName)))
+            }
+        }
+    }
+
+    /**
+     * Makes the bots play until it's a human's turn or the game is over. Their
+     * moves are pushed by the [listener].
+     */
+    private fun playBots(game: UnoGame) {
+        while (!game.isOver && game.playerInTurn is Bot) game.goBot()
+    }
+
+    private fun created(sessionId: Long, playerIndex: Int): ByteBuffer {
+        val buffer = Protocol.frame(Protocol.CREATED, 9)
+        buffer.putLong(sessionId)
+        buffer.put(playerIndex.toByte())
+        buffer.flip()
+        return buffer
+    }
+
+    private fun moved(sessionId: Long, player: Int, command: GameCommand,
+                      game: UnoGame): ByteBuffer {
+        val buffer = Protocol.frame(Protocol.MOVED, 15)
+        buffer.putLong(sessionId)
+        buffer.put(player.toByte())
+        buffer.putShort(command.code.toShort())
+        buffer.put(CardCodes.encode(game.tableTop).toByte())
+        buffer.put(game.getIndex(game.playerInTurn.id).toByte())
+        buffer.put(game.previousPlayer.hand.size.toByte())
+        buffer.put(if (game.isOver) 1 else 0)
+        buffer.flip()
+        return buffer
+    }
+
+    private fun invalid(sessionId: Long, command: GameCommand, reason: Int): ByteBuffer {
+        val buffer = Protocol.frame(Protocol.INVALID, 11)
+        buffer.putLong(sessionId)
+        buffer.putShort(command.code.toShort())
+        buffer.put(reason.toByte())
+        buffer.flip()
+        return buffer
+    }
+
+    private fun state(sessionId: Long, game: UnoGame): ByteBuffer {
+        val players = game.getPlayers()
+        val hand = players.first { it !is Bot }.hand
+        val buffer = Protocol.frame(Protocol.STATE, 13 + players.size + hand.size)
+        buffer.putLong(sessionId)
+        buffer.put(CardCodes.encode(game.tableTop).toByte())
+        buffer.put(game.getIndex(game.playerInTurn.id).toByte())
+        buffer.put(if (game.isOver) 1 else 0)
+        buffer.put(players.size.toByte())
+        for (player in players) buffer.put(player.hand.size.toByte())
+        buffer.put(hand.size.toByte())
+        for (card in hand) buffer.put(CardCodes.encode(card).toByte())
+        buffer.flip()
+        return buffer
+    }
+
+    private fun closed(sessionId: Long): ByteBuffer {
+        val buffer = Protocol.frame(Protocol.CLOSED, 8)
+        buffer.putLong(sessionId)
+        buffer.flip()
+        return buffer
+    }
+}
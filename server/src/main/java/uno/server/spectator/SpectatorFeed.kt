@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.spectator
+
+import uno.engine.CardColour
+import uno.engine.GameCommand
+import uno.engine.UnoGame
+import uno.engine.objects.Colourful
+import uno.engine.objects.Wild
+import uno.server.GameSessionManager
+import uno.server.SessionListener
+import java.util.ArrayDeque
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executor
+import java.util.concurrent.Flow
+import java.util.concurrent.ForkJoinPool
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Streams the public state of tables to any number of spectators.
+ *
+ * It must be the [SessionListener] of the session manager hosting the tables.
+ * After each move, the public changes are computed once, on the game's thread,
+ * into an immutable [TableDelta] shared by every spectator of the table.
+ *
+ * Spectators subscribe through `java.util.concurrent.Flow`. Each one has a
+ * buffer of `bufferSize` deltas and is served on `executor` as it requests
+ * them. Publishing never waits on spectators: when a buffer is full the newest
+ * buffered delta is merged with the incoming one, so slow spectators skip
+ * intermediate states while still ending up with an accurate view.
+ *
+ * @author Fábio Furtado
+ */
+class SpectatorFeed @JvmOverloads constructor(
+    private val executor: Executor = ForkJoinPool.commonPool(),
+    private val bufferSize: Int = 16
+) : SessionListener {
+
+    private val tables = ConcurrentHashMap<Long, Table>()
+
+    init {
+        if (bufferSize < 1) throw IllegalArgumentException("The buffer must hold a delta")
+    }
+
+    /**
+     * Returns a publisher of the deltas of the given table. Subscribers get
+     * the table's current state first, then a delta per move. They're
+     * completed when the session closes and get a
+     * [uno.server.SessionNotFoundException] if there's no such session.
+     */
+    fun publisher(manager: GameSessionManager, sessionId: Long) =
+        Flow.Publisher<TableDelta> { subscribe(manager, sessionId, it) }
+
+    /**
+     * Number of spectators watching the given table.
+     */
+    fun numberOfSpectators(sessionId: Long) = tables[sessionId]?.subscriptions?.size ?: 0
+
+    private fun subscribe(manager: GameSessionManager, sessionId: Long,
+                          subscriber: Flow.Subscriber<in TableDelta>) {
+        // set on the shard, read once the query completed
+        var subscribed: Subscription? = null
+        manager.query(sessionId) { game ->
+            val table = tables.computeIfAbsent(sessionId) { Table(sessionId) }
+            val subscription = Subscription(subscriber, table)
+            subscribed = subscription
+            subscriber.onSubscribe(subscription)
+            table.subscriptions.add(subscription)
+            subscription.offer(table.initialState(game))
+        }.whenComplete { _, error ->
+            if (error != null) {
+                val cause = if (error is CompletionException) error.cause ?: error else error
+                // onSubscribe may only be called once, so a subscriber which got it
+                // is failed through its subscription, in order with its other signals
+                val subscription = subscribed
+                if (subscription != null) subscription.fail(cause)
+                else {
+                    subscriber.onSubscribe(object : Flow.Subscription {
+                        override fun request(n: Long) {}
+                        override fun cancel() {}
+                    })
+                    subscriber.onError(cause)
+                }
+            }
+        }
+    }
+
+    /**
+     * @see SessionListener.onMove
+     */
+    override fun onMove(sessionId: Long, player: Int, move: GameCommand, game: UnoGame) {
+        val table = tables[sessionId] ?: return
+        if (table.subscriptions.isEmpty()) {
+            tables.remove(sessionId)
+            return
+        }
+        val delta = table.update(player, game)
+        for (subscription in table.subscriptions) subscription.offer(delta)
+    }
+
+    /**
+     * @see SessionListener.onExpired
+     */
+    override fun onExpired(sessionId: Long) = onClosed(sessionId)
+
+    /**
+     * @see SessionListener.onClosed
+     */
+    override fun onClosed(sessionId: Long) {
+        val table = tables.remove(sessionId) ?: return
+        for (subscription in table.subscriptions) subscription.complete()
+    }
+
+    /**
+     * What the spectators of a table last saw. Only updated from the game's
+     * thread.
+     */
+    private class Table(val sessionId: Long) {
+
+        val subscriptions = CopyOnWriteArrayList<Subscription>()
+        private var handSizes = IntArray(0)
+        private var sequence = 0L
+
+        fun initialState(game: UnoGame): TableDelta {
+            if (handSizes.size != game.numberOfPlayers) handSizes = currentHandSizes(game)
+            return delta(game, 0, -1, handSizes.copyOf())
+        }
+
+        fun update(player: Int, game: UnoGame): TableDelta {
+            val sizes = currentHandSizes(game)
+            val changed = IntArray(sizes.size) {
+                if (it < handSizes.size && handSizes[it] == sizes[it]) TableDelta.UNCHANGED
+                else sizes[it]
+            }
+            handSizes = sizes
+            sequence++
+            return delta(game, 1, player, changed)
+        }
+
+        private fun delta(game: UnoGame, moves: Int, player: Int, sizes: IntArray): TableDelta {
+            val top = game.tableTop
+            val colour = when (top) {
+                is Colourful -> top.colour
+                is Wild -> top.colour.orElse(CardColour.RED)
+                else -> CardColour.RED
+            }
+            return TableDelta(sessionId, sequence, moves, player, top, colour,
+                    game.getIndex(game.playerInTurn.id), game.isOver, sizes)
+        }
+
+        private fun currentHandSizes(game: UnoGame): IntArray {
+            val players = game.getPlayers()
+            return IntArray(players.size) { players[it].hand.size }
+        }
+    }
+
+    /**
+     * A spectator's buffer. Deltas are offered by the game's thread and handed
+     * to the subscriber by a drain task run on the executor, at most one at a
+     * time.
+     */
+    private inner class Subscription(
+        private val subscriber: Flow.Subscriber<in TableDelta>,
+        private val table: Table
+    ) : Flow.Subscription, Runnable {
+
+        private val buffer = ArrayDeque<TableDelta>(bufferSize)
+        private val work = AtomicInteger()
+        private var demand = 0L
+        private var completed = false
+
+        @Volatile
+        private var cancelled = false
+        private var error: Throwable? = null
+
+        fun offer(delta: TableDelta) {
+            synchronized(this) {
+                if (buffer.size == bufferSize) buffer.addLast(buffer.pollLast().merge(delta))
+                else buffer.addLast(delta)
+            }
+            schedule()
+        }
+
+        fun complete() {
+            synchronized(this) { completed = true }
+            schedule()
+        }
+
+        /**
+         * Ends the subscription with the given error, unless it already has
+         * one.
+         */
+        fun fail(cause: Throwable) {
+            synchronized(this) { if (error == null) error = cause }
+            schedule()
+        }
+
+        override fun request(n: Long) {
+            synchronized(this) {
+                if (n <= 0) error = IllegalArgumentException("$n is not a positive request")
+                else demand = if (demand + n < 0) Long.MAX_VALUE else demand + n
+            }
+            schedule()
+        }
+
+        override fun cancel() {
+            cancelled = true
+            table.subscriptions.remove(this)
+        }
+
+        private fun schedule() {
+            if (work.getAndIncrement() == 0) executor.execute(this)
+        }
+
+        override fun run() {
+            var missed = 1
+            while (true) {
+                drain()
+                missed = work.addAndGet(-missed)
+                if (missed == 0) return
+            }
+        }
+
+        private fun drain() {
+            while (!cancelled) {
+                var next: TableDelta? = null
+                var finished = false
+                var failure: Throwable? = null
+                synchronized(this) {
+                    when {
+                        error != null -> failure = error
+                        demand > 0 && !buffer.isEmpty() -> {
+                            next = buffer.pollFirst()
+                            demand--
+                        }
+                        completed && buffer.isEmpty() -> finished = true
+                        else -> {}
+                    }
+                }
+                when {
+                    failure != null -> {
+                        cancel()
+                        subscriber.onError(failure)
+                    }
+                    finished -> {
+                        cancel()
+                        subscriber.onComplete()
+                    }
+                    next != null -> {
+                        subscriber.onNext(next)
+                        continue
+                    }
+                }
+                return
+            }
+        }
+    }
+}
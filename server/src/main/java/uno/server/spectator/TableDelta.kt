@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.server.spectator
+
+import uno.engine.CardColour
+import uno.engine.objects.Card
+
+/**
+ * The public changes to a table caused by one or more moves. Nothing private
+ * to the players, like the cards in their hands, is included.
+ *
+ * The first delta a spectator gets holds the whole public state of the table,
+ * with every hand size present.
+ *
+ * @property sessionId the table's session
+ * @property sequence number of moves made at the table since it started being
+ * watched, after the ones in this delta
+ * @property moves number of moves this delta covers. More than 1 if the
+ * spectator fell behind and deltas were coalesced, 0 for the initial state
+ * @property player index of the player who made the last move, -1 if none
+ * @property tableTop card at the top of the table
+ * @property colour colour the next card has to match
+ * @property turn index of the player in turn
+ * @property isOver true if the game is over
+ *
+ * @author Fábio Furtado
+ */
+class TableDelta internal constructor(
+    val sessionId: Long,
+    val sequence: Long,
+    val moves: Int,
+    val player: Int,
+    val tableTop: Card,
+    val colour: CardColour,
+    val turn: Int,
+    val isOver: Boolean,
+    private val handSizes: IntArray
+) {
+
+    /**
+     * Number of seats at the table.
+     */
+    val numberOfSeats: Int
+        get() = handSizes.size
+
+    /**
+     * Returns the number of cards the player at the given seat has, or
+     * [UNCHANGED] if it didn't change in this delta.
+     */
+    fun handSize(seat: Int) = handSizes[seat]
+
+    /**
+     * Returns a delta with the changes of this one followed by those of
+     * `next`.
+     */
+    internal fun merge(next: TableDelta): TableDelta {
+        val sizes = handSizes.copyOf()
+        for (i in sizes.indices) if (next.handSizes[i] != UNCHANGED) sizes[i] = next.handSizes[i]
+        return TableDelta(sessionId, next.sequence, moves + next.moves, next.player,
+                next.tableTop, next.colour, next.turn, next.isOver, sizes)
+    }
+
+    companion object {
+
+        /**
+         * Hand size of a seat whose hand did not change.
+         */
+        const val UNCHANGED = -1
+    }
+}
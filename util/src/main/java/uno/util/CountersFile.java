@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Named counters kept in a memory-mapped file with a fixed layout, so another
+ * process can read them while they're updated, and after the writer is gone.
+ * <p>The file starts with a {@value #HEADER_LENGTH} byte header, followed by a
+ * fixed number of {@value #SLOT_LENGTH} byte slots. All numbers are big
+ * endian.
+ * <pre>
+ * header  0  int   magic, "UNOC"
+ *         4  int   layout version, {@value #VERSION}
+ *         8  long  process id of the writer
+ *        16  long  time the file was created, in epoch milliseconds
+ *        24  long  time of the last update, in epoch milliseconds
+ *        32  int   number of slots
+ *        36  int   number of slots in use
+ * slot    0  long  value
+ *         8  int   length of the label, in UTF-8 bytes
+ *        12        label, at most {@value #MAX_LABEL_LENGTH} bytes
+ * </pre>
+ * <p>There's a single writer. A slot's label is written before the number of
+ * slots in use is raised past it, and values and the update time are written
+ * with release semantics and read with acquire ones, so a reader never sees a
+ * half written slot.
+ *
+ * @author Fábio Furtado
+ */
+public class CountersFile implements Closeable {
+
+    /**
+     * Layout version written to the header.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * Longest label a slot can hold, in UTF-8 bytes.
+     */
+    public static final int MAX_LABEL_LENGTH = 116;
+
+    private static final int MAGIC = 0x554E4F43;
+    private static final int HEADER_LENGTH = 64;
+    private static final int SLOT_LENGTH = 128;
+    private static final int PID_OFFSET = 8;
+    private static final int START_OFFSET = 16;
+    private static final int HEARTBEAT_OFFSET = 24;
+    private static final int CAPACITY_OFFSET = 32;
+    private static final int SIZE_OFFSET = 36;
+    private static final int LABEL_LENGTH_OFFSET = 8;
+    private static final int LABEL_OFFSET = 12;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final boolean writable;
+    private int size;
+
+    private CountersFile(MappedByteBuffer buffer, int capacity, boolean writable) {
+        this.buffer = buffer;
+        this.capacity = capacity;
+        this.writable = writable;
+    }
+
+    /**
+     * Creates the file, replacing any existing one, with room for
+     * {@code capacity} counters.
+     *
+     * @param path     path of the file
+     * @param capacity number of counters it can hold
+     * @return the file, open for writing
+     * @throws IOException if it can't be created
+     */
+    public static CountersFile create(Path path, int capacity) throws IOException {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The capacity must be at least 1");
+        long length = HEADER_LENGTH + (long) capacity * SLOT_LENGTH;
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(PID_OFFSET, ProcessHandle.current().pid());
+        buffer.putLong(START_OFFSET, System.currentTimeMillis());
+        buffer.putInt(CAPACITY_OFFSET, capacity);
+        CountersFile file = new CountersFile(buffer, capacity, true);
+        file.heartbeat();
+        return file;
+    }
+
+    /**
+     * Opens an existing file for reading.
+     *
+     * @param path path of the file
+     * @return the file, open for reading
+     * @throws IOException if it can't be read or isn't a counters file of this
+     *                     layout version
+     */
+    public static CountersFile open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_LENGTH)
+                throw new IOException(path + " is not a counters file");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException(path + " is not a counters file");
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException(path + " has layout version " + buffer.getInt(4)
+                    + ", expected " + VERSION);
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        if (buffer.capacity() < HEADER_LENGTH + (long) capacity * SLOT_LENGTH)
+            throw new IOException(path + " is truncated");
+        return new CountersFile(buffer, capacity, false);
+    }
+
+    /**
+     * Takes the next free slot for a counter with the given label.
+     *
+     * @param label label of the counter, truncated to
+     *              {@value #MAX_LABEL_LENGTH} UTF-8 bytes
+     * @return id of the counter, to pass to {@link #set(int, long)}
+     * @throws IllegalStateException if every slot is taken
+     */
+    public int allocate(String label) {
+        checkWritable();
+        if (size == capacity)
+            throw new IllegalStateException("All " + capacity + " counters are taken");
+        int id = size;
+        byte[] bytes = label.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, MAX_LABEL_LENGTH);
+        int offset = slotOffset(id);
+        buffer.putLong(offset, 0);
+        buffer.putInt(offset + LABEL_LENGTH_OFFSET, length);
+        for (int i = 0; i < length; i++)
+            buffer.put(offset + LABEL_OFFSET + i, bytes[i]);
+        size++;
+        INTS.setRelease(buffer, SIZE_OFFSET, size);
+        return id;
+    }
+
+    /**
+     * Sets the value of a counter.
+     *
+     * @param id    id returned by {@link #allocate(String)}
+     * @param value new value
+     */
+    public void set(int id, long value) {
+        checkWritable();
+        LONGS.setRelease(buffer, slotOffset(checkId(id)), value);
+    }
+
+    /**
+     * Records the current time as the time of the last update, so readers can
+     * tell whether the writer is still alive.
+     */
+    public void heartbeat() {
+        checkWritable();
+        LONGS.setRelease(buffer, HEARTBEAT_OFFSET, System.currentTimeMillis());
+    }
+
+    /**
+     * Returns the number of counters in the file.
+     *
+     * @return number of slots in use
+     */
+    public int size() {
+        return writable ? size : (int) INTS.getAcquire(buffer, SIZE_OFFSET);
+    }
+
+    /**
+     * Returns the number of counters the file can hold.
+     *
+     * @return number of slots
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the label of a counter.
+     *
+     * @param id id of the counter, lesser than {@link #size()}
+     * @return the label
+     */
+    public String label(int id) {
+        int offset = slotOffset(checkId(id));
+        byte[] bytes = new byte[buffer.getInt(offset + LABEL_LENGTH_OFFSET)];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = buffer.get(offset + LABEL_OFFSET + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the value of a counter.
+     *
+     * @param id id of the counter, lesser than {@link #size()}
+     * @return the value
+     */
+    public long value(int id) {
+        return (long) LONGS.getAcquire(buffer, slotOffset(checkId(id)));
+    }
+
+    /**
+     * Returns the process id of the writer.
+     *
+     * @return process id
+     */
+    public long pid() {
+        return buffer.getLong(PID_OFFSET);
+    }
+
+    /**
+     * Returns when the file was created.
+     *
+     * @return time in epoch milliseconds
+     */
+    public long startTime() {
+        return buffer.getLong(START_OFFSET);
+    }
+
+    /**
+     * Returns when the counters were last updated.
+     *
+     * @return time in epoch milliseconds
+     */
+    public long heartbeatTime() {
+        return (long) LONGS.getAcquire(buffer, HEARTBEAT_OFFSET);
+    }
+
+    /**
+     * Flushes a writable file to the storage device. The mapping itself stays
+     * valid until the buffer is garbage collected.
+     */
+    @Override
+    public void close() {
+        if (writable)
+            buffer.force();
+    }
+
+    private int checkId(int id) {
+        if (id < 0 || id >= size())
+            throw new IndexOutOfBoundsException("No counter with id " + id);
+        return id;
+    }
+
+    private void checkWritable() {
+        if (!writable)
+            throw new IllegalStateException("The file is open for reading only");
+    }
+
+    private static int slotOffset(int id) {
+        return HEADER_LENGTH + id * SLOT_LENGTH;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Copies a {@link MetricsRegistry} into a {@link CountersFile} at a regular
+ * interval, from a daemon thread of its own, so the code updating the metrics
+ * pays nothing for them being published.
+ * <p>Counters and gauges take a slot each. Histograms take one for each of
+ * their count, mean, 50th, 99th and 99.9th percentiles and max, and one per
+ * power of ten bucket from 10^3 to 10^10 with the number of values at or
+ * below it, labelled like {@code engine.bots.decision.le1e6}. Slots are given
+ * out as metrics show up and kept when they're removed from the registry,
+ * holding their last value. Metrics which don't fit in the file are left out.
+ * <p>The registry is published one last time when the JVM shuts down, so the
+ * file holds the final values for inspecting after the process is gone.
+ *
+ * @author Fábio Furtado
+ */
+public class CountersPublisher implements Closeable {
+
+    /**
+     * Number of counters in the files created by
+     * {@link #startFromProperties(MetricsRegistry, String)}, unless set with
+     * the {@value #CAPACITY_PROPERTY} system property.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Milliseconds between updates, unless set with the
+     * {@value #INTERVAL_PROPERTY} system property.
+     */
+    public static final long DEFAULT_INTERVAL_MILLIS = 1000;
+
+    /**
+     * System property with the number of counters of the file.
+     */
+    public static final String CAPACITY_PROPERTY = "uno.counters.capacity";
+
+    /**
+     * System property with the milliseconds between updates.
+     */
+    public static final String INTERVAL_PROPERTY = "uno.counters.interval";
+
+    private static final int FIRST_BUCKET_EXPONENT = 3;
+    private static final int LAST_BUCKET_EXPONENT = 10;
+    private static final long FIRST_BUCKET = 1_000;
+
+    private final MetricsRegistry registry;
+    private final CountersFile file;
+    private final long intervalMillis;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+
+    /**
+     * Starts publishing the registry into the file.
+     *
+     * @param registry       registry to publish
+     * @param file           file open for writing, which is closed along with
+     *                       this publisher
+     * @param intervalMillis milliseconds between updates
+     */
+    public CountersPublisher(MetricsRegistry registry, CountersFile file, long intervalMillis) {
+        if (intervalMillis < 1)
+            throw new IllegalArgumentException("The interval must be at least 1 ms");
+        this.registry = registry;
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+        this.thread = new Thread(this::run, "uno-counters");
+        this.thread.setDaemon(true);
+        this.shutdownHook = new Thread(this::publish, "uno-counters-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        this.thread.start();
+    }
+
+    /**
+     * Publishes the registry into a file created at the given path, reading
+     * the capacity and interval from the system properties. Failing to create
+     * the file is reported on the standard error, as the metrics are still
+     * there through JMX.
+     *
+     * @param registry registry to publish
+     * @param path     path of the file
+     */
+    static void startFromProperties(MetricsRegistry registry, String path) {
+        try {
+            Path file = Paths.get(path);
+            new CountersPublisher(registry,
+                    CountersFile.create(file, Integer.getInteger(CAPACITY_PROPERTY, DEFAULT_CAPACITY)),
+                    Long.getLong(INTERVAL_PROPERTY, DEFAULT_INTERVAL_MILLIS));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Can't publish the metrics to " + path + ": " + e);
+        }
+    }
+
+    /**
+     * Copies the current values of the registry into the file. This is done
+     * by the publisher's thread, and is only exposed for publishing on demand.
+     */
+    public synchronized void publish() {
+        for (Map.Entry<String, Object> entry : registry.metrics().entrySet()) {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof LongAdder)
+                set(name, ((LongAdder) metric).sum());
+            else if (metric instanceof LongSupplier)
+                set(name, ((LongSupplier) metric).getAsLong());
+            else if (metric instanceof LatencyHistogram) {
+                LatencyHistogram histogram = (LatencyHistogram) metric;
+                set(name + ".count", histogram.getCount());
+                set(name + ".mean", Math.round(histogram.getMean()));
+                set(name + ".p50", histogram.getValueAtPercentile(50));
+                set(name + ".p99", histogram.getValueAtPercentile(99));
+                set(name + ".p99.9", histogram.getValueAtPercentile(99.9));
+                set(name + ".max", histogram.getMax());
+                long bound = FIRST_BUCKET;
+                for (int exponent = FIRST_BUCKET_EXPONENT; exponent <= LAST_BUCKET_EXPONENT; exponent++) {
+                    set(name + ".le1e" + exponent, histogram.getCountAtOrBelow(bound));
+                    bound *= 10;
+                }
+            }
+        }
+        file.heartbeat();
+    }
+
+    /**
+     * Stops publishing, after a last update.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // Already shutting down, the hook publishes
+        }
+        publish();
+        file.close();
+    }
+
+    private void run() {
+        while (!closed) {
+            publish();
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void set(String label, long value) {
+        Integer id = ids.get(label);
+        if (id == null) {
+            if (ids.size() == file.capacity())
+                return;
+            id = file.allocate(label);
+            ids.put(label, id);
+        }
+        file.set(id, value);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.util;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Displays the counters of a {@link CountersFile} written by another process,
+ * refreshing them until interrupted.
+ * <p>Each counter is shown with its value and how much it changed per second
+ * since the previous refresh, which turns totals like
+ * {@code engine.games.started} into games per second. The header tells
+ * whether the writer is still updating the file; once it's gone the last
+ * values stay readable.
+ * <p>Usage: {@code CountersReader <file> [--interval <ms>] [--once]}
+ *
+ * @author Fábio Furtado
+ */
+public final class CountersReader {
+
+    private static final long DEFAULT_INTERVAL_MILLIS = 1000;
+    private static final String CLEAR_SCREEN = "\u001b[H\u001b[2J";
+
+    private CountersReader() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            System.err.println("Usage: CountersReader <file> [--interval <ms>] [--once]");
+            System.exit(1);
+        }
+        Path path = Paths.get(args[0]);
+        long interval = DEFAULT_INTERVAL_MILLIS;
+        boolean once = false;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--once"))
+                once = true;
+            else if (args[i].equals("--interval") && i + 1 < args.length)
+                interval = Long.parseLong(args[++i]);
+        }
+
+        CountersFile file = CountersFile.open(path);
+        boolean clear = !once && System.console() != null;
+        Map<String, Long> previous = new HashMap<>();
+        long previousNanos = 0;
+        while (true) {
+            long now = System.nanoTime();
+            StringBuilder screen = new StringBuilder();
+            if (clear)
+                screen.append(CLEAR_SCREEN);
+            long age = System.currentTimeMillis() - file.heartbeatTime();
+            screen.append(String.format("%s  pid %d  %s%n%n", path, file.pid(),
+                    age <= 2 * interval ? "live" : "last updated " + age / 1000 + " s ago"));
+            screen.append(String.format("%-60s %16s %12s%n", "Counter", "Value", "Per second"));
+            for (int id = 0; id < file.size(); id++) {
+                String label = file.label(id);
+                long value = file.value(id);
+                Long last = previous.put(label, value);
+                String rate = last == null || previousNanos == 0 ? ""
+                        : String.format("%.1f", (value - last) * 1e9 / (now - previousNanos));
+                screen.append(String.format("%-60s %16d %12s%n", label, value, rate));
+            }
+            System.out.print(screen);
+            System.out.flush();
+            if (once)
+                return;
+            previousNanos = now;
+            Thread.sleep(interval);
+        }
+    }
+}
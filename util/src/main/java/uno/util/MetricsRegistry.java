@@ -0,0 +1,298 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.util;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * A set of named metrics: counters, latency histograms and gauges.
+ * <p>Counters are {@link LongAdder}s, so incrementing them from many threads
+ * doesn't contend, and histograms are {@link LatencyHistogram}s. Both are
+ * meant to be looked up once and kept in a field by the code updating them.
+ * Gauges are read when the metrics are. Names are dotted paths, like
+ * {@code engine.moves.draw}.
+ * <p>The whole registry can be exposed as a single JMX MBean, one attribute
+ * per counter and gauge and a few per histogram, and dumped as text.
+ *
+ * @author Fábio Furtado
+ */
+public class MetricsRegistry {
+
+    private static final String DEFAULT_OBJECT_NAME = "uno:type=Metrics";
+
+    /**
+     * System property with the path of a {@link CountersFile} the default
+     * registry should be published to.
+     */
+    public static final String COUNTERS_FILE_PROPERTY = "uno.counters.file";
+
+    /**
+     * System property which, set to {@code false}, keeps the default registry
+     * out of JMX. Registering it starts the platform MBean server, which costs
+     * short lived processes more than anything else they do.
+     */
+    public static final String JMX_PROPERTY = "uno.metrics.jmx";
+    private static final double[] PERCENTILES = {50, 99, 99.9};
+    private static volatile MetricsRegistry defaultRegistry;
+
+    private final ConcurrentSkipListMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * Returns the registry the engine and server report to, registering it as
+     * the {@value #DEFAULT_OBJECT_NAME} MBean on first use unless the
+     * {@value #JMX_PROPERTY} system property is {@code false}. If the
+     * {@value #COUNTERS_FILE_PROPERTY} system property is set, it's also
+     * published to that counters file.
+     *
+     * @return the default registry
+     */
+    public static MetricsRegistry getDefault() {
+        MetricsRegistry registry = defaultRegistry;
+        if (registry == null) {
+            synchronized (MetricsRegistry.class) {
+                registry = defaultRegistry;
+                if (registry == null) {
+                    registry = new MetricsRegistry();
+                    if (!"false".equals(System.getProperty(JMX_PROPERTY))) {
+                        try {
+                            registry.registerMBean(DEFAULT_OBJECT_NAME);
+                        } catch (JMException | SecurityException e) {
+                            // The metrics are still there to be dumped
+                        }
+                    }
+                    String countersFile = System.getProperty(COUNTERS_FILE_PROPERTY);
+                    if (countersFile != null)
+                        CountersPublisher.startFromProperties(registry, countersFile);
+                    defaultRegistry = registry;
+                }
+            }
+        }
+        return registry;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it if needed.
+     *
+     * @param name name of the counter
+     * @return the counter
+     * @throws IllegalArgumentException if the name is taken by another kind of
+     *                                  metric
+     */
+    public LongAdder counter(String name) {
+        return get(name, LongAdder.class, new LongAdder());
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it if needed.
+     *
+     * @param name name of the histogram
+     * @return the histogram
+     * @throws IllegalArgumentException if the name is taken by another kind of
+     *                                  metric
+     */
+    public LatencyHistogram histogram(String name) {
+        return get(name, LatencyHistogram.class, new LatencyHistogram());
+    }
+
+    /**
+     * Registers an existing histogram, replacing any metric with the same
+     * name.
+     *
+     * @param name      name of the histogram
+     * @param histogram histogram to register
+     */
+    public void register(String name, LatencyHistogram histogram) {
+        metrics.put(name, histogram);
+    }
+
+    /**
+     * Registers a gauge, replacing any metric with the same name.
+     *
+     * @param name  name of the gauge
+     * @param gauge function returning the gauge's value, which may be called
+     *              from any thread
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        metrics.put(name, gauge);
+    }
+
+    /**
+     * Removes the metric with the given name, if there's one.
+     *
+     * @param name name of the metric
+     */
+    public void remove(String name) {
+        metrics.remove(name);
+    }
+
+    /**
+     * Removes every metric whose name starts with the given prefix.
+     *
+     * @param prefix prefix of the names
+     */
+    public void removeAll(String prefix) {
+        metrics.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    /**
+     * Returns the current value of every counter and gauge, and a few values of
+     * each histogram, by name.
+     *
+     * @return map from names to values, sorted by name
+     */
+    public Map<String, Number> values() {
+        Map<String, Number> values = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : metrics.entrySet()) {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof LongAdder)
+                values.put(name, ((LongAdder) metric).sum());
+            else if (metric instanceof LongSupplier)
+                values.put(name, ((LongSupplier) metric).getAsLong());
+            else {
+                LatencyHistogram histogram = (LatencyHistogram) metric;
+                values.put(name + ".count", histogram.getCount());
+                values.put(name + ".mean", histogram.getMean());
+                for (double percentile : PERCENTILES)
+                    values.put(name + ".p" + format(percentile),
+                            histogram.getValueAtPercentile(percentile));
+                values.put(name + ".max", histogram.getMax());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns a text snapshot of the metrics, a {@code name value} line per
+     * value.
+     *
+     * @return the snapshot
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Number> entry : values().entrySet()) {
+            builder.append(entry.getKey()).append(' ');
+            Number value = entry.getValue();
+            if (value instanceof Double)
+                builder.append(String.format("%.1f", value.doubleValue()));
+            else builder.append(value);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Registers this registry as an MBean of the platform server.
+     *
+     * @param objectName the MBean's object name
+     * @throws JMException if it can't be registered
+     */
+    public void registerMBean(String objectName) throws JMException {
+        ManagementFactory.getPlatformMBeanServer()
+                .registerMBean(new MetricsMBean(), new ObjectName(objectName));
+    }
+
+    /**
+     * Returns the metrics themselves, by name, for publishers which need more
+     * than {@link #values()} gives.
+     */
+    Map<String, Object> metrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    private <T> T get(String name, Class<T> type, T created) {
+        Object metric = metrics.computeIfAbsent(name, key -> created);
+        if (!type.isInstance(metric))
+            throw new IllegalArgumentException(name + " is not a " + type.getSimpleName());
+        return type.cast(metric);
+    }
+
+    private static String format(double percentile) {
+        return percentile == Math.rint(percentile)
+                ? Long.toString((long) percentile) : Double.toString(percentile);
+    }
+
+    /**
+     * Read only view of the registry, with an attribute per value.
+     */
+    private class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Number value = values().get(attribute);
+            if (value == null)
+                throw new AttributeNotFoundException(attribute);
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Number> values = values();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Number value = values.get(attribute);
+                if (value != null)
+                    list.add(new Attribute(attribute, value));
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("Metrics are read only");
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature)
+                throws MBeanException {
+            if ("dump".equals(actionName))
+                return dump();
+            throw new MBeanException(new UnsupportedOperationException(actionName));
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            List<MBeanAttributeInfo> attributes = new ArrayList<>();
+            for (Map.Entry<String, Number> entry : values().entrySet()) {
+                attributes.add(new MBeanAttributeInfo(entry.getKey(),
+                        entry.getValue().getClass().getName(), entry.getKey(),
+                        true, false, false));
+            }
+            MBeanOperationInfo dump = new MBeanOperationInfo("dump",
+                    "Text snapshot of the metrics", new MBeanParameterInfo[0],
+                    String.class.getName(), MBeanOperationInfo.INFO);
+            return new MBeanInfo(MetricsRegistry.class.getName(), "uno metrics",
+                    attributes.toArray(new MBeanAttributeInfo[0]), null,
+                    new MBeanOperationInfo[] {dump}, null);
+        }
+    }
+}
@@ -17,23 +17,42 @@
 
 package uno.util;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 
 /**
+ * Stack backed by an array which only grows, so once it has held its largest
+ * number of elements neither pushing nor popping allocates.
+ *
  * @author Fábio Furtado
  * @see MutableStack
  */
 public class Stack<E> implements MutableStack<E>, Iterable<E> {
 
-    private SingleLinkNode<E> top;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
     private int size;
 
     /**
      * Create a new empty Stack
      */
     public Stack() {
-        this.top = null;
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new empty Stack which holds {@code capacity} elements before
+     * having to grow.
+     *
+     * @param capacity initial capacity
+     * @throws IllegalArgumentException if {@code capacity} is negative
+     */
+    public Stack(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity can't be negative: " + capacity);
+        this.elements = new Object[capacity];
         this.size = 0;
     }
 
@@ -42,8 +61,9 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
      */
     @Override
     public void push(E element) {
-        top = new SingleLinkNode<>(element, top);
-        size++;
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, Math.max(DEFAULT_CAPACITY, size * 2));
+        elements[size++] = element;
     }
 
     /**
@@ -53,10 +73,9 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
     public E pop() {
         if (isEmpty())
             throw new EmptyStackException();
-        SingleLinkNode<E> oldTop = top;
-        top = top.next();
-        size--;
-        return oldTop.getNodeContent();
+        E element = elementAt(--size);
+        elements[size] = null;
+        return element;
     }
 
     /**
@@ -66,7 +85,7 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
     public E peek() {
         if (isEmpty())
             throw new EmptyStackException();
-        return top.getNodeContent();
+        return elementAt(size - 1);
     }
 
     /**
@@ -82,7 +101,7 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
      */
     @Override
     public boolean isEmpty() {
-        return top == null;
+        return size == 0;
     }
 
 
@@ -91,13 +110,7 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
      */
     @Override
     public Object[] toArray() {
-        Object[] arr = new Object[size];
-        int i = size - 1;
-        for (E element : this) {
-            arr[i] = element;
-            i--;
-        }
-        return arr;
+        return Arrays.copyOf(elements, size);
     }
 
     /**
@@ -105,18 +118,9 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
      */
     @Override
     public Stack<E> clone() {
-        if (isEmpty())
-            return new Stack<>();
-
-        SingleLinkNode<E> next = top;
-        Stack<E> aux = new Stack<>();
-        Stack<E> clone = new Stack<>();
-        while(next != null) {
-            aux.push(next.getNodeContent());
-            next = next.next();
-        }
-        while(!aux.isEmpty())
-            clone.push(aux.pop());
+        Stack<E> clone = new Stack<>(elements.length);
+        System.arraycopy(elements, 0, clone.elements, 0, size);
+        clone.size = size;
         return clone;
     }
 
@@ -125,6 +129,11 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
         return new StackIterator();
     }
 
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        return (E) elements[index];
+    }
+
     /**
      * Iterator for this class.
      * <p> The element at the top is the first iteration and the element at the
@@ -132,13 +141,13 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
      */
     private class StackIterator implements Iterator<E> {
 
-        private SingleLinkNode<E> next;
+        private int next;
 
         /**
          * Creates an instance.
          */
         private StackIterator() {
-            this.next = top;
+            this.next = size - 1;
         }
 
         /**
@@ -146,7 +155,7 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
          */
         @Override
         public boolean hasNext() {
-            return next != null;
+            return next >= 0;
         }
 
         /**
@@ -154,9 +163,7 @@ public class Stack<E> implements MutableStack<E>, Iterable<E> {
          */
         @Override
         public E next() {
-            E returnValue = next.getNodeContent();
-            next = next.next();
-            return returnValue;
+            return elementAt(next--);
         }
     }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.util;
+
+import java.util.Random;
+
+/**
+ * A {@link Random} whose internal state can be read and restored.
+ * <p>It uses the same linear congruential generator as {@link Random}, but
+ * keeps the seed in a plain field so a component depending on it can be
+ * checkpointed and later resumed producing the exact same sequence. Its whole
+ * state is that seed: unlike {@link Random}, it doesn't keep the second
+ * value computed by {@link #nextGaussian()} for the next call.
+ *
+ * @author Fábio Furtado
+ */
+public class StatefulRandom extends Random {
+
+    private static final long serialVersionUID = 1L;
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    /**
+     * Creates an instance with the given seed.
+     *
+     * @param seed initial seed
+     */
+    public StatefulRandom(long seed) {
+        super(seed);
+        setSeed(seed);
+    }
+
+    /**
+     * Creates an instance with a seed picked at random.
+     */
+    public StatefulRandom() {
+        this(new Random().nextLong());
+    }
+
+    /**
+     * Returns a new instance which continues from the given state.
+     *
+     * @param state value previously returned by {@link #getState()}
+     * @return instance resuming from the given state
+     */
+    public static StatefulRandom fromState(long state) {
+        StatefulRandom random = new StatefulRandom(0);
+        random.state = state & MASK;
+        return random;
+    }
+
+    /**
+     * Returns the current internal state of this generator.
+     *
+     * @return internal state
+     */
+    public long getState() {
+        return state;
+    }
+
+    /**
+     * @see Random#setSeed(long)
+     */
+    @Override
+    public synchronized void setSeed(long seed) {
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    /**
+     * Unlike {@link Random#nextGaussian()}, the second value of each pair
+     * computed by the polar method is discarded rather than kept for the next
+     * call, so the sequence only depends on {@link #getState()}.
+     *
+     * @see Random#nextGaussian()
+     */
+    @Override
+    public double nextGaussian() {
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+    }
+
+    /**
+     * @see Random#next(int)
+     */
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
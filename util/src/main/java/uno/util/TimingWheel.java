@@ -0,0 +1,237 @@
+/*
+ * Copyright (C) 2020  Fábio Furtado
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package uno.util;
+
+/**
+ * A hierarchical hashed timing wheel for scheduling large numbers of timers
+ * on a single thread.
+ * <p>Time is divided into ticks. The first level has one slot per tick for the
+ * next {@value #SLOTS} ticks, and each of the {@value #LEVELS} levels covers
+ * {@value #SLOTS} times the span of the one below. Timers far in the future
+ * sit in the coarser levels and are moved down as their time gets closer, so
+ * scheduling, cancelling and firing a timer all take constant time, whatever
+ * the number of timers.
+ * <p>Timers are intrusive list nodes which can be rescheduled any number of
+ * times, so a long lived timer needs no allocation after being created.
+ * <p>This class is not thread-safe. The thread owning it must call
+ * {@link #advance(long)} regularly, which runs the actions of the expired
+ * timers on that same thread.
+ *
+ * @author Fábio Furtado
+ */
+public class TimingWheel {
+
+    private static final int SLOT_BITS = 8;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+
+    private final long tickNanos;
+    private final long startNanos;
+    private final Timer[][] wheels = new Timer[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     *
+     * @param tickNanos  duration of each tick, the resolution of the timers
+     * @param startNanos time, as given by {@link System#nanoTime()}, of the
+     *                   wheel's first tick
+     */
+    public TimingWheel(long tickNanos, long startNanos) {
+        if (tickNanos < 1)
+            throw new IllegalArgumentException("The tick must last at least 1 ns");
+        this.tickNanos = tickNanos;
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Returns the duration of each tick.
+     *
+     * @return tick duration in nanoseconds
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Returns the number of timers scheduled.
+     *
+     * @return number of timers scheduled
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks if there are no timers scheduled.
+     *
+     * @return true if there are no timers scheduled, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Schedules the given timer to fire at the given time, rescheduling it if
+     * it was already scheduled. Timers due before the next tick fire on the
+     * next tick.
+     *
+     * @param timer         timer to schedule
+     * @param deadlineNanos time, as given by {@link System#nanoTime()}, when
+     *                      the timer should fire
+     */
+    public void schedule(Timer timer, long deadlineNanos) {
+        if (timer.wheel != null && timer.wheel != this)
+            throw new IllegalStateException("The timer belongs to another wheel");
+        cancel(timer);
+        long elapsed = deadlineNanos - startNanos;
+        long tick = elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+        timer.deadlineTick = Math.max(tick, currentTick + 1);
+        timer.wheel = this;
+        insert(timer);
+        size++;
+    }
+
+    /**
+     * Cancels the given timer.
+     *
+     * @param timer timer to cancel
+     * @return true if the timer was scheduled, false otherwise
+     */
+    public boolean cancel(Timer timer) {
+        if (timer.wheel != this)
+            return false;
+        unlink(timer);
+        timer.wheel = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * Moves the wheel up to the given time, firing every timer due by then in
+     * order of their deadlines, at tick resolution.
+     *
+     * @param nowNanos current time, as given by {@link System#nanoTime()}
+     * @return number of timers fired
+     */
+    public int advance(long nowNanos) {
+        long targetTick = (nowNanos - startNanos) / tickNanos;
+        int fired = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0)
+                    cascade(level, (int) (currentTick >>> (SLOT_BITS * level)) & MASK);
+            }
+            Timer[] slots = wheels[0];
+            int slot = (int) currentTick & MASK;
+            Timer timer;
+            while ((timer = slots[slot]) != null) {
+                cancel(timer);
+                fired++;
+                timer.action.run();
+            }
+        }
+        return fired;
+    }
+
+    /**
+     * Moves the timers of the given slot to the levels they now belong to.
+     */
+    private void cascade(int level, int slot) {
+        Timer timer = wheels[level][slot];
+        wheels[level][slot] = null;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.next = null;
+            timer.previous = null;
+            insert(timer);
+            timer = next;
+        }
+    }
+
+    private void insert(Timer timer) {
+        long delta = timer.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1)))
+            level++;
+        long slotTick = delta >= 1L << (SLOT_BITS * LEVELS)
+                // Too far away, park it at the last slot to be cascaded
+                ? currentTick + (1L << (SLOT_BITS * LEVELS)) - 1
+                : timer.deadlineTick;
+        int slot = (int) (slotTick >>> (SLOT_BITS * level)) & MASK;
+        Timer[] slots = wheels[level];
+        timer.level = level;
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = slots[slot];
+        if (slots[slot] != null)
+            slots[slot].previous = timer;
+        slots[slot] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.previous != null)
+            timer.previous.next = timer.next;
+        else
+            wheels[timer.level][timer.slot] = timer.next;
+        if (timer.next != null)
+            timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+    }
+
+    /**
+     * A reusable timer. The same instance can be scheduled again after it
+     * fired or was cancelled, including from its own action.
+     */
+    public static final class Timer {
+
+        private final Runnable action;
+        private TimingWheel wheel;
+        private Timer previous;
+        private Timer next;
+        private long deadlineTick;
+        private int level;
+        private int slot;
+
+        /**
+         * Creates an unscheduled timer.
+         *
+         * @param action what to run when the timer fires
+         */
+        public Timer(Runnable action) {
+            this.action = action;
+        }
+
+        /**
+         * Checks if this timer is waiting to fire.
+         *
+         * @return true if scheduled, false otherwise
+         */
+        public boolean isScheduled() {
+            return wheel != null;
+        }
+    }
+}